@@ -0,0 +1,54 @@
+package com.maximilien0405.androidrelaunch;
+
+// Drops to the minimum interval after a kill, holds it while kills are recent,
+// then backs off exponentially towards the maximum interval while the app stays alive
+public class AdaptiveHeartbeatPolicy implements HeartbeatPolicy {
+
+    static final String NAME = "adaptive";
+
+    private final long minInterval;
+    private final long maxInterval;
+    private final double backoffFactor;
+    private final long killWindow;
+
+    private volatile long interval;
+    private long lastKillAt = Long.MIN_VALUE;
+
+    public AdaptiveHeartbeatPolicy(long initialInterval, long minInterval, long maxInterval, double backoffFactor, long killWindow) {
+        this.minInterval = minInterval;
+        this.maxInterval = Math.max(minInterval, maxInterval);
+        this.backoffFactor = Math.max(1.0, backoffFactor);
+        this.killWindow = killWindow;
+        this.interval = clamp(initialInterval);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public long getInterval() {
+        return interval;
+    }
+
+    @Override
+    public void onCheck(long now, boolean killed) {
+        if (killed) {
+            lastKillAt = now;
+            interval = minInterval;
+            return;
+        }
+
+        // Stay responsive while the last kill is still recent
+        if (lastKillAt != Long.MIN_VALUE && now - lastKillAt < killWindow) {
+            return;
+        }
+
+        interval = clamp((long) (interval * backoffFactor));
+    }
+
+    private long clamp(long value) {
+        return Math.max(minInterval, Math.min(maxInterval, value));
+    }
+}
@@ -0,0 +1,141 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.app.ActivityManager;
+import android.app.ApplicationExitInfo;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+
+// ProcessProbe backend reading ActivityManager, PackageManager and /proc
+public class AndroidProcessBackend implements ProcessProbe.Backend {
+
+    private static final String TAG = "AndroidProcessBackend";
+
+    private final ActivityManager am;
+    private final PackageManager pm;
+
+    // /proc entry of the last pid asked for, reused so the steady state does not allocate
+    private int procPid = ProcessProbe.PID_UNKNOWN;
+    private File procDir;
+
+    public AndroidProcessBackend(Context context) {
+        this.am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        this.pm = context.getPackageManager();
+    }
+
+    @Override
+    public int findPid(String processName) {
+        if (am == null) {
+            Log.w(TAG, "ActivityManager service is null");
+            return ProcessProbe.PROCESS_LIST_UNAVAILABLE;
+        }
+        try {
+            List<ActivityManager.RunningAppProcessInfo> runningProcesses = am.getRunningAppProcesses();
+            if (runningProcesses == null) {
+                Log.w(TAG, "Running processes list is null - may need QUERY_ALL_PACKAGES permission");
+                return ProcessProbe.PROCESS_LIST_UNAVAILABLE;
+            }
+            
+            for (int i = 0, n = runningProcesses.size(); i < n; i++) {
+                ActivityManager.RunningAppProcessInfo process = runningProcesses.get(i);
+                if (process != null && processName.equals(process.processName)) {
+                    return process.pid;
+                }
+            }
+            return ProcessProbe.PID_UNKNOWN;
+        } catch (SecurityException e) {
+            Log.e(TAG, "Security exception checking app process: " + e.getMessage(), e);
+            return ProcessProbe.PROCESS_LIST_UNAVAILABLE;
+        } catch (Exception e) {
+            Log.e(TAG, "Error checking running processes: " + e.getMessage(), e);
+            return ProcessProbe.PROCESS_LIST_UNAVAILABLE;
+        }
+    }
+
+    @Override
+    public boolean snapshotRunning(Set<String> out) {
+        if (am == null) {
+            return false;
+        }
+        try {
+            List<ActivityManager.RunningAppProcessInfo> runningProcesses = am.getRunningAppProcesses();
+            if (runningProcesses == null) {
+                return false;
+            }
+            for (int i = 0, n = runningProcesses.size(); i < n; i++) {
+                ActivityManager.RunningAppProcessInfo process = runningProcesses.get(i);
+                if (process != null && process.processName != null) {
+                    out.add(process.processName);
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading running processes: " + e.getMessage(), e);
+            return false;
+        }
+    }
+
+    // Processes of the same uid are always visible, so our own pid tells whether /proc is usable
+    @Override
+    public boolean canReadProc() {
+        return new File("/proc/" + Process.myPid()).exists();
+    }
+
+    @Override
+    public boolean isPidAlive(int pid) {
+        if (pid != procPid) {
+            procPid = pid;
+            procDir = new File("/proc/" + pid);
+        }
+        return procDir.exists();
+    }
+
+    @Override
+    public boolean canQueryExitReasons() {
+        return am != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.R;
+    }
+
+    @Override
+    public boolean hasExited(String packageName, int pid) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R) {
+            return false;
+        }
+        try {
+            List<ApplicationExitInfo> exits = am.getHistoricalProcessExitReasons(packageName, pid, 1);
+            return exits != null && !exits.isEmpty();
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading exit reasons: " + e.getMessage(), e);
+            return false;
+        }
+    }
+
+    // Alternative method to check if app is in foreground
+    @Override
+    public boolean isInForeground(String packageName) {
+        try {
+            if (am == null) return false;
+            
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                List<ActivityManager.RunningTaskInfo> tasks = am.getRunningTasks(1);
+                if (tasks != null && !tasks.isEmpty()) {
+                    return tasks.get(0).topActivity != null && 
+                           tasks.get(0).topActivity.getPackageName().equals(packageName);
+                }
+            }
+            
+            // Check if app is in the list of running apps
+            ApplicationInfo appInfo = pm.getApplicationInfo(packageName, 0);
+            return (appInfo.flags & ApplicationInfo.FLAG_STOPPED) == 0;
+        } catch (Exception e) {
+            Log.e(TAG, "Error checking if app is in foreground: " + e.getMessage(), e);
+            return false;
+        }
+    }
+}
@@ -5,23 +5,381 @@ import android.content.Intent;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
 
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @CapacitorPlugin(name = "AndroidRelaunch")
 public class AndroidRelaunchPlugin extends Plugin {
-    private static boolean isEnabled = false;
+    static final String MODE_FOREGROUND = "foreground";
+    static final String MODE_WATCHDOG = "watchdog";
+    static final String MODE_JOB = "job";
+
+    // Beat period of the heartbeat slot, a slot older than a few periods is not fresh
+    static final long SLOT_INTERVAL = 1000;
+    // Milliseconds a service started at boot waits before its first check, see BootReceiver
+    static final String EXTRA_START_DELAY = "com.maximilien0405.androidrelaunch.START_DELAY";
+
+    private static final String TAG = "AndroidRelaunchPlugin";
+    private static final int REPLAY_BATCH = 16;
+    private static final int MAX_STACK_FRAMES = 64;
+    private static final long STATE_COMMIT_DELAY = 500;
+    private static final long MEMORY_SAMPLE_INTERVAL = 10000;
+    // Exits recorded this long before the last sign of life still count as the relaunched death
+    private static final long EXIT_MATCH_SLACK = 10000;
+
+    // Journal reads stay off the main thread so startup never waits on disk
+    private static final ExecutorService journalExecutor = Executors.newSingleThreadExecutor();
+
     private static AndroidRelaunchPlugin pluginInstance;
+    // When the first bridge of this process finished loading, and whether the relaunch that
+    // started the process has been traced, only touched on the journal executor
+    private static volatile long bridgeLoadedAt = 0;
+    private static boolean bridgeLoadTraced = false;
+
+    // Publishing the enabled state and starting or stopping the services happen as one step,
+    // so concurrent enable(), disable() and boot restores cannot interleave
+    private static final Object monitoringLock = new Object();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Last journal entry handed to this bridge, only touched on the journal executor. The
+    // cursor waits for the ack, a recreated bridge gets the unacked entries again.
+    private long dispatchedSequence = 0;
+    // Relaunch events handed to JavaScript and not acked yet, by sequence: the dispatch time
+    // and the detection time of the incident. Only touched on the journal executor.
+    private final Map<Long, long[]> pendingDeliveries = new HashMap<>();
+    private HeartbeatSlot heartbeatSlot;
+    private volatile LooperWatchdog looperWatchdog;
+    private volatile JsProbe jsProbe;
+    private volatile long probeInterval;
+    private volatile boolean foreground = false;
+    // Set on the main thread once the bridge is gone, nothing is started again after that
+    private boolean destroyed = false;
+    private RendererRecovery rendererRecovery;
+    private MemoryPressure memoryPressure;
+    private final Runnable memorySample = new Runnable() {
+        // getMemoryInfo is a binder call, keep it off the main thread
+        @Override
+        public void run() {
+            final MemoryPressure pressure = memoryPressure;
+            if (pressure == null) return;
+            journalExecutor.execute(pressure::sample);
+            mainHandler.postDelayed(this, MEMORY_SAMPLE_INTERVAL);
+        }
+    };
+    private final Runnable footprintSample = new Runnable() {
+        // PSS of the app process with the bridge loaded, for the mode monitoring runs in
+        @Override
+        public void run() {
+            final Context context = getContext();
+            journalExecutor.execute(() -> {
+                ConfigStore.Snapshot snapshot = ConfigStore.current();
+                if (snapshot.enabled) {
+                    ModeFootprint.get(context).sample(ModeFootprint.APP_PROCESS, ModeFootprint.slotOf(snapshot.config.mode));
+                }
+            });
+            mainHandler.postDelayed(this, ModeFootprint.SAMPLE_INTERVAL);
+        }
+    };
+    // Debounced state commit, rescheduled by every saveState()
+    private volatile boolean stateCommitPending = false;
+    private final Runnable stateCommit = () -> {
+        stateCommitPending = false;
+        journalExecutor.execute(this::commitState);
+    };
+    private final Runnable probeTick = new Runnable() {
+        @Override
+        public void run() {
+            JsProbe probe = jsProbe;
+            if (probe == null) return;
+            // Nothing can ack before the page subscribed to probes
+            if (hasListeners("probe")) {
+                probe.tick();
+            }
+            mainHandler.postDelayed(this, probeInterval);
+        }
+    };
+    private final Runnable slotBeat = new Runnable() {
+        // Stamp the slot from the main looper so a blocked looper shows up as a stale slot,
+        // the same beat is the tick watched by the looper watchdog
+        @Override
+        public void run() {
+            long now = SystemClock.elapsedRealtimeNanos();
+            if (heartbeatSlot != null) {
+                heartbeatSlot.write(now, Process.myPid(), HeartbeatSlot.STATE_ACTIVE);
+            }
+            LooperWatchdog watchdog = looperWatchdog;
+            if (watchdog != null) {
+                watchdog.tick();
+            }
+            mainHandler.postDelayed(this, SLOT_INTERVAL);
+        }
+    };
 
     // Initialize plugin instance reference when plugin loads
     @Override
     public void load() {
+        RelaunchTrace.beginSection(RelaunchTrace.BRIDGE_LOAD);
         super.load();
         pluginInstance = this;
+        // The app is up, completes a relaunch issued from this process
+        RelaunchCoordinator.get().confirm();
+        startHeartbeatSlot();
+        startRendererRecovery();
+        replayJournal();
+        final Context context = getContext();
+        // The config file is read off the main thread
+        journalExecutor.execute(() -> {
+            ConfigStore.Snapshot snapshot = ConfigStore.get(context);
+            configureSlotBeat(snapshot);
+            configureFootprint(snapshot);
+            configureMemoryPressure(snapshot);
+            configureLooperWatchdog(snapshot);
+            configureJsProbe(snapshot);
+        });
+        RelaunchTrace.endSection();
+        // Traced once the replay finds the relaunch that started this process
+        if (bridgeLoadedAt == 0) {
+            bridgeLoadedAt = SystemClock.elapsedRealtimeNanos();
+        }
+    }
+
+    // Commit pending state right away, the app may not come back from the background
+    @Override
+    protected void handleOnPause() {
+        super.handleOnPause();
+        flushState();
+        // A page in the background is throttled, its late acks are not a freeze
+        foreground = false;
+        mainHandler.removeCallbacks(probeTick);
+        JsProbe probe = jsProbe;
+        if (probe != null) {
+            probe.reset();
+        }
+    }
+
+    // Probe the JavaScript event loop again once the page is in the foreground
+    @Override
+    protected void handleOnResume() {
+        super.handleOnResume();
+        foreground = true;
+        mainHandler.removeCallbacks(probeTick);
+        if (jsProbe != null) {
+            mainHandler.postDelayed(probeTick, probeInterval);
+        }
+    }
+
+    // Mark the slot closed so the watchdog does not read an idle process as stuck
+    @Override
+    protected void handleOnDestroy() {
+        super.handleOnDestroy();
+        destroyed = true;
+        flushState();
+        mainHandler.removeCallbacks(slotBeat);
+        configureFootprint(null);
+        configureLooperWatchdog(null);
+        configureJsProbe(null);
+        mainHandler.removeCallbacks(memorySample);
+        if (memoryPressure != null) {
+            getContext().getApplicationContext().unregisterComponentCallbacks(memoryPressure);
+            memoryPressure = null;
+        }
+        if (rendererRecovery != null) {
+            getBridge().removeWebViewListener(rendererRecovery);
+            rendererRecovery = null;
+        }
+        if (heartbeatSlot != null) {
+            heartbeatSlot.write(SystemClock.elapsedRealtimeNanos(), Process.myPid(), HeartbeatSlot.STATE_CLOSED);
+            heartbeatSlot.close();
+            heartbeatSlot = null;
+        }
+    }
+
+    // Open the shared heartbeat slot, stamped once the config shows monitoring is enabled
+    private void startHeartbeatSlot() {
+        try {
+            heartbeatSlot = HeartbeatSlot.openForWrite(HeartbeatSlot.file(getContext()));
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to open heartbeat slot: " + e.getMessage(), e);
+        }
+    }
+
+    // Beat the slot while monitoring is enabled, the services of every mode and the looper
+    // watchdog depend on it. The beat runs even when the slot could not be opened, it is also
+    // the tick of the looper watchdog. Disabled, the slot is marked closed and the beat stops.
+    private void configureSlotBeat(ConfigStore.Snapshot snapshot) {
+        final boolean enabled = snapshot != null && snapshot.enabled;
+        mainHandler.post(() -> {
+            mainHandler.removeCallbacks(slotBeat);
+            if (destroyed) return;
+            if (enabled) {
+                slotBeat.run();
+            } else if (heartbeatSlot != null) {
+                heartbeatSlot.write(SystemClock.elapsedRealtimeNanos(), Process.myPid(), HeartbeatSlot.STATE_CLOSED);
+            }
+        });
+    }
+
+    // Sample the app process for the mode footprint while monitoring is enabled
+    private void configureFootprint(ConfigStore.Snapshot snapshot) {
+        mainHandler.removeCallbacks(footprintSample);
+        if (snapshot != null && snapshot.enabled) {
+            mainHandler.postDelayed(footprintSample, ModeFootprint.SAMPLE_INTERVAL);
+        }
+    }
+
+    // Handle renderer deaths of the bridge WebView in place instead of crashing the app
+    private void startRendererRecovery() {
+        try {
+            // Retained so a listener registered by the reloaded page still receives it
+            rendererRecovery = new RendererRecovery(event -> notifyListeners("rendererRecovered", event, true));
+            getBridge().addWebViewListener(rendererRecovery);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to register renderer recovery: " + e.getMessage(), e);
+        }
+    }
+
+    // Grade memory pressure from trim callbacks and memory samples so the app can shed load first.
+    // Only while monitoring is enabled, disabled the callbacks are unregistered and sampling stops.
+    private void configureMemoryPressure(ConfigStore.Snapshot snapshot) {
+        final boolean enabled = snapshot != null && snapshot.enabled;
+        mainHandler.post(() -> {
+            mainHandler.removeCallbacks(memorySample);
+            Context context = getContext().getApplicationContext();
+            if (enabled && !destroyed) {
+                try {
+                    if (memoryPressure == null) {
+                        memoryPressure = new MemoryPressure(context, event -> notifyListeners("memoryPressure", event));
+                        context.registerComponentCallbacks(memoryPressure);
+                    }
+                    memorySample.run();
+                } catch (Exception e) {
+                    Log.e(TAG, "Failed to register memory pressure callbacks: " + e.getMessage(), e);
+                }
+            } else if (memoryPressure != null) {
+                context.unregisterComponentCallbacks(memoryPressure);
+                memoryPressure = null;
+            }
+        });
+    }
+
+    // Watch the main looper while monitoring is enabled, null stops watching
+    private synchronized void configureLooperWatchdog(ConfigStore.Snapshot snapshot) {
+        if (looperWatchdog != null) {
+            looperWatchdog.stop();
+            looperWatchdog = null;
+        }
+        if (snapshot == null || !snapshot.enabled || snapshot.config.hangTimeout <= 0) {
+            return;
+        }
+        final WatchdogConfig config = snapshot.config;
+        LooperWatchdog watchdog = new LooperWatchdog(SLOT_INTERVAL, config.hangTimeout,
+                (blockedMs, stack) -> journalExecutor.execute(() -> onHang(config, blockedMs, stack)));
+        watchdog.start();
+        looperWatchdog = watchdog;
+    }
+
+    // Start probing the JavaScript event loop with the given settings, stops when disabled
+    private synchronized void configureJsProbe(ConfigStore.Snapshot snapshot) {
+        mainHandler.removeCallbacks(probeTick);
+        jsProbe = null;
+        if (snapshot == null || !snapshot.enabled || snapshot.config.probeInterval <= 0) {
+            return;
+        }
+        final WatchdogConfig config = snapshot.config;
+        probeInterval = config.probeInterval;
+        jsProbe = new JsProbe(Clock.ELAPSED_REALTIME, config.probeTimeout, new JsProbe.Listener() {
+            // One small event per interval, acked through ackProbe()
+            @Override
+            public void sendProbe(long id) {
+                JSObject probe = new JSObject();
+                probe.put("id", id);
+                notifyListeners("probe", probe);
+            }
+
+            @Override
+            public void onUnresponsive(long blockedMs) {
+                onJsUnresponsive(config, blockedMs);
+            }
+        });
+        if (foreground) {
+            mainHandler.postDelayed(probeTick, probeInterval);
+        }
+    }
+
+    // The page stopped acking probes, recover as configured. Called on the main thread.
+    private void onJsUnresponsive(final WatchdogConfig config, final long blockedMs) {
+        Log.w(TAG, "JavaScript has not acked a probe for " + blockedMs + " ms");
+        if (WatchdogConfig.PROBE_ACTION_RELAUNCH.equals(config.probeAction) && isEnabled()) {
+            // The relaunched process reports it as a relaunch event
+            final Context context = getContext();
+            final long detectedAt = SystemClock.elapsedRealtimeNanos();
+            journalExecutor.execute(() -> Relauncher.killAndRelaunch(context, RelaunchJournal.PATH_JS_PROBE, blockedMs,
+                    !MODE_WATCHDOG.equals(config.mode), config.relaunchDelay, detectedAt));
+            return;
+        }
+        
+        JSObject event = new JSObject();
+        event.put("timestamp", System.currentTimeMillis());
+        event.put("blockedMs", blockedMs);
+        event.put("action", config.probeAction);
+        // Retained, the frozen page gets it once it runs again
+        notifyListeners("jsUnresponsive", event, true);
+        if (WatchdogConfig.PROBE_ACTION_RELOAD.equals(config.probeAction)) {
+            try {
+                getBridge().reload();
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to reload the WebView: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    // Journal the hang with the main thread stack, then kill and relaunch if configured to
+    private void onHang(WatchdogConfig config, long blockedMs, StackTraceElement[] stack) {
+        Context context = getContext();
+        Log.w(TAG, "Main looper blocked for " + blockedMs + " ms");
+        long detectedAt = SystemClock.elapsedRealtimeNanos();
+        try {
+            RelaunchJournal journal = RelaunchJournal.get(context);
+            int latency = (int) Math.min(blockedMs, Integer.MAX_VALUE);
+            long sequence = journal.append(System.currentTimeMillis(), latency, RelaunchJournal.PATH_HANG_REPORT,
+                    RelaunchJournal.EXIT_REASON_UNKNOWN, RelaunchJournal.TARGET_APP, detectedAt);
+            journal.attach(sequence, formatStack(stack));
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to journal hang: " + e.getMessage(), e);
+        }
+        
+        if (WatchdogConfig.HANG_ACTION_RELAUNCH.equals(config.hangAction) && isEnabled()) {
+            // The report is delivered by the relaunched process
+            Relauncher.killAndRelaunch(context, RelaunchJournal.PATH_HANG, blockedMs,
+                    !MODE_WATCHDOG.equals(config.mode), config.relaunchDelay, detectedAt);
+        }
+        replayJournal();
+    }
+
+    private static String formatStack(StackTraceElement[] stack) {
+        StringBuilder builder = new StringBuilder();
+        int frames = Math.min(stack.length, MAX_STACK_FRAMES);
+        for (int i = 0; i < frames; i++) {
+            builder.append("at ").append(stack[i]).append('\n');
+        }
+        if (stack.length > frames) {
+            builder.append("... ").append(stack.length - frames).append(" more\n");
+        }
+        return builder.toString();
     }
 
     // Enable the relaunch mechanism by starting the foreground service
@@ -34,21 +392,32 @@ public class AndroidRelaunchPlugin extends Plugin {
                 return;
             }
             
-            // Check if already enabled
-            if (isEnabled) {
-                call.resolve();
+            WatchdogConfig config;
+            try {
+                config = WatchdogConfig.fromCall(call, context.getPackageName());
+            } catch (IllegalArgumentException e) {
+                call.reject(e.getMessage());
                 return;
             }
             
-            Intent serviceIntent = new Intent(context, KeepAliveService.class);
-            
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                context.startForegroundService(serviceIntent);
-            } else {
-                context.startService(serviceIntent);
+            if (!MODE_FOREGROUND.equals(config.mode) && !MODE_WATCHDOG.equals(config.mode)
+                    && !MODE_JOB.equals(config.mode)) {
+                call.reject("Unknown mode: " + config.mode);
+                return;
             }
             
-            isEnabled = true;
+            // Persist first so a service started in another process reads the new settings,
+            // calling enable() again while running applies the new options
+            ConfigStore.Snapshot snapshot;
+            synchronized (monitoringLock) {
+                snapshot = ConfigStore.publish(context, true, config);
+                startService(context, config, 0);
+            }
+            configureSlotBeat(snapshot);
+            configureFootprint(snapshot);
+            configureMemoryPressure(snapshot);
+            configureLooperWatchdog(snapshot);
+            configureJsProbe(snapshot);
             call.resolve();
         } catch (SecurityException e) {
             call.reject("Permission denied: " + e.getMessage() + ". Make sure FOREGROUND_SERVICE permission is granted.", e);
@@ -59,6 +428,47 @@ public class AndroidRelaunchPlugin extends Plugin {
         }
     }
 
+    // Start the monitoring service for the configured mode, the service reads its settings from ConfigStore
+    static void startMonitoring(Context context, WatchdogConfig config, long startDelay) {
+        synchronized (monitoringLock) {
+            // A disable() that won the race stays in effect
+            if (!ConfigStore.current().enabled) {
+                return;
+            }
+            startService(context, config, startDelay);
+        }
+    }
+
+    // startDelay is handed to the service, which starts in the foreground right away but waits
+    // that long before its first check
+    private static void startService(Context context, WatchdogConfig config, long startDelay) {
+        if (MODE_JOB.equals(config.mode)) {
+            // Checks run as one-shot jobs, no service stays up
+            context.stopService(new Intent(context, KeepAliveService.class));
+            context.stopService(new Intent(context, WatchdogService.class));
+            RelaunchJobService.schedule(context, config);
+            return;
+        }
+        RelaunchJobService.cancel(context);
+        
+        boolean watchdog = MODE_WATCHDOG.equals(config.mode);
+        // Out-of-process watchdog notified through Binder death
+        Class<?> serviceClass = watchdog ? WatchdogService.class : KeepAliveService.class;
+        // Only one mode runs at a time when enable() switches modes
+        context.stopService(new Intent(context, watchdog ? KeepAliveService.class : WatchdogService.class));
+        
+        Intent serviceIntent = new Intent(context, serviceClass);
+        if (startDelay > 0) {
+            serviceIntent.putExtra(EXTRA_START_DELAY, startDelay);
+        }
+        
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            context.startForegroundService(serviceIntent);
+        } else {
+            context.startService(serviceIntent);
+        }
+    }
+
     // Disable the relaunch mechanism by stopping the foreground service
     @com.getcapacitor.PluginMethod
     public void disable(PluginCall call) {
@@ -69,9 +479,21 @@ public class AndroidRelaunchPlugin extends Plugin {
                 return;
             }
             
-            Intent serviceIntent = new Intent(context, KeepAliveService.class);
-            boolean stopped = context.stopService(serviceIntent);
-            isEnabled = false;
+            // Persist first so a sticky restart racing with the stop stays idle
+            ConfigStore.Snapshot snapshot;
+            boolean stopped;
+            synchronized (monitoringLock) {
+                snapshot = ConfigStore.publish(context, false, ConfigStore.get(context).config);
+                stopped = context.stopService(new Intent(context, KeepAliveService.class));
+                stopped |= context.stopService(new Intent(context, WatchdogService.class));
+                RelaunchJobService.cancel(context);
+                stopped |= MODE_JOB.equals(snapshot.config.mode);
+            }
+            configureSlotBeat(snapshot);
+            configureFootprint(snapshot);
+            configureMemoryPressure(snapshot);
+            configureLooperWatchdog(snapshot);
+            configureJsProbe(snapshot);
                         
             if (stopped) {
                 call.resolve();
@@ -83,9 +505,202 @@ public class AndroidRelaunchPlugin extends Plugin {
         }
     }
 
-    // Check if the relaunch mechanism is currently enabled
+    // Report the heartbeat interval currently used by the monitoring service
+    @com.getcapacitor.PluginMethod
+    public void getHeartbeatInterval(PluginCall call) {
+        HeartbeatPolicy policy = KeepAliveService.getActivePolicy();
+        JSObject result = new JSObject();
+        result.put("running", policy != null);
+        if (policy != null) {
+            result.put("policy", policy.getName());
+            result.put("intervalMs", policy.getInterval());
+        }
+        call.resolve(result);
+    }
+
+    // Report the crash-loop guard state so the app can tell when relaunches are paused
+    @com.getcapacitor.PluginMethod
+    public void getRelaunchStatus(PluginCall call) {
+        try {
+            long now = System.currentTimeMillis();
+            CrashLoopGuard.Status status = CrashLoopGuard.get(getContext()).getStatus(now);
+            JSArray recent = new JSArray();
+            for (long timestamp : status.recentRelaunches) {
+                recent.put(timestamp);
+            }
+            JSObject result = new JSObject();
+            result.put("coolingDown", status.coolingDown);
+            result.put("cooldownUntil", status.cooldownUntil);
+            result.put("cooldownRemainingMs", status.coolingDown ? status.cooldownUntil - now : 0);
+            result.put("backoffLevel", status.backoffLevel);
+            result.put("tokens", status.tokens);
+            result.put("recentRelaunches", recent);
+            result.put("relaunchState", RelaunchCoordinator.stateName(RelaunchCoordinator.get().getState()));
+            call.resolve(result);
+        } catch (Exception e) {
+            call.reject("Failed to read relaunch status: " + e.getMessage(), e);
+        }
+    }
+
+    // Report counters and latency histograms of the monitoring paths
+    @com.getcapacitor.PluginMethod
+    public void getStats(PluginCall call) {
+        try {
+            JSObject result = RelaunchStats.toJSObject();
+            result.put("memoryPressure", MemoryPressure.currentLevelName());
+            JSObject watchdog = RelaunchStats.readFrom(RelaunchStats.watchdogFile(getContext()));
+            if (watchdog != null) {
+                result.put("watchdog", watchdog);
+            }
+            JSObject job = RelaunchStats.readFrom(RelaunchStats.jobFile(getContext()));
+            if (job != null) {
+                result.put("job", job);
+            }
+            result.put("footprint", ModeFootprint.get(getContext()).toJSObject());
+            call.resolve(result);
+        } catch (Exception e) {
+            call.reject("Failed to read stats: " + e.getMessage(), e);
+        }
+    }
+
+    // Report why the app process died, folding the exits recorded since the last fold first
+    @com.getcapacitor.PluginMethod
+    public void getExitReasons(final PluginCall call) {
+        final Context context = getContext();
+        journalExecutor.execute(() -> {
+            try {
+                ExitReasonStats stats = ExitReasonStats.get(context);
+                stats.fold(context);
+                call.resolve(stats.toJSObject());
+            } catch (Exception e) {
+                call.reject("Failed to read exit reasons: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    // Ack of a probe by the JavaScript event loop, sent without a response message
+    @com.getcapacitor.PluginMethod(returnType = com.getcapacitor.PluginMethod.RETURN_NONE)
+    public void ackProbe(PluginCall call) {
+        JsProbe probe = jsProbe;
+        Long id = call.getLong("id");
+        if (probe != null && id != null) {
+            probe.ack(id);
+        }
+    }
+
+    // Ack of a journaled relaunch or hang event by a JavaScript listener, sent without a response
+    // message. Moves the delivery cursor, so the event is not replayed by the next process.
+    @com.getcapacitor.PluginMethod(returnType = com.getcapacitor.PluginMethod.RETURN_NONE)
+    public void ackEvent(PluginCall call) {
+        final Long sequence = call.getLong("sequence");
+        if (sequence == null) return;
+        final RelaunchJournal journal = RelaunchJournal.get(getContext());
+        journalExecutor.execute(() -> {
+            long[] delivery = pendingDeliveries.remove(sequence);
+            if (delivery != null) {
+                long now = SystemClock.elapsedRealtimeNanos();
+                RelaunchTrace.endAsyncSection(RelaunchTrace.EVENT_DELIVERY, (int) (long) sequence);
+                RelaunchTrace.record(RelaunchTrace.EVENT_DELIVERY, delivery[0], now, delivery[1]);
+                RelaunchStats.deliveryLatency.recordMicros((now - delivery[0]) / 1000L);
+            }
+            try {
+                journal.markDelivered(sequence);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to ack journal event: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    // Export the recent relaunch stages of all monitoring processes as Chrome trace JSON
+    @com.getcapacitor.PluginMethod
+    public void exportTrace(PluginCall call) {
+        try {
+            Context context = getContext();
+            call.resolve(RelaunchTrace.export(RelaunchTrace.file(context, MODE_WATCHDOG),
+                    RelaunchTrace.file(context, MODE_JOB)));
+        } catch (Exception e) {
+            call.reject("Failed to export trace: " + e.getMessage(), e);
+        }
+    }
+
+    // Set one key of the state handed over to the relaunched app, null removes it.
+    // The disk commit is debounced unless commit is true.
+    @com.getcapacitor.PluginMethod
+    public void saveState(PluginCall call) {
+        String key = call.getString("key");
+        if (key == null) {
+            call.reject("key is required");
+            return;
+        }
+        try {
+            StateStore store = StateStore.get(getContext());
+            store.put(key, call.getString("value"));
+            mainHandler.removeCallbacks(stateCommit);
+            if (call.getBoolean("commit", false)) {
+                stateCommitPending = false;
+                store.commit();
+            } else {
+                stateCommitPending = true;
+                mainHandler.postDelayed(stateCommit, STATE_COMMIT_DELAY);
+            }
+            call.resolve();
+        } catch (Exception e) {
+            call.reject("Failed to save state: " + e.getMessage(), e);
+        }
+    }
+
+    // Return the saved state, read from the committed snapshot on first use
+    @com.getcapacitor.PluginMethod
+    public void restoreState(PluginCall call) {
+        try {
+            StateStore store = StateStore.get(getContext());
+            JSObject state = new JSObject();
+            for (Map.Entry<String, String> entry : store.read().entrySet()) {
+                state.put(entry.getKey(), entry.getValue());
+            }
+            JSObject result = new JSObject();
+            result.put("state", state);
+            result.put("savedAt", store.getSavedAt());
+            call.resolve(result);
+        } catch (Exception e) {
+            call.reject("Failed to restore state: " + e.getMessage(), e);
+        }
+    }
+
+    // Drop the saved state, committed immediately
+    @com.getcapacitor.PluginMethod
+    public void clearState(PluginCall call) {
+        try {
+            mainHandler.removeCallbacks(stateCommit);
+            stateCommitPending = false;
+            StateStore store = StateStore.get(getContext());
+            store.clear();
+            store.commit();
+            call.resolve();
+        } catch (Exception e) {
+            call.reject("Failed to clear state: " + e.getMessage(), e);
+        }
+    }
+
+    // Run a pending debounced commit now
+    private void flushState() {
+        if (stateCommitPending) {
+            mainHandler.removeCallbacks(stateCommit);
+            stateCommit.run();
+        }
+    }
+
+    private void commitState() {
+        try {
+            StateStore.get(getContext()).commit();
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to commit state: " + e.getMessage(), e);
+        }
+    }
+
+    // Check if the relaunch mechanism is currently enabled, a lock-free read of the config snapshot
     public static boolean isEnabled() {
-        return isEnabled;
+        return ConfigStore.current().enabled;
     }
 
     // Get the current plugin instance for service communication
@@ -93,13 +708,90 @@ public class AndroidRelaunchPlugin extends Plugin {
         return pluginInstance;
     }
 
-    // Notify JavaScript listeners about app relaunch events
+    // Notify JavaScript listeners about app relaunch events recorded in the journal
     public void notifyRelaunch() {
-        try {
-            JSObject data = new JSObject();
-            data.put("relaunch", true);
-            notifyListeners("relaunch", data);
-        } catch (Exception e) {
+        replayJournal();
+    }
+
+    // From the process start to the plugin loaded, the part of a relaunch spent in the app.
+    // Only a relaunch detected shortly before this process started brought it up, a cold
+    // start by the user is not traced. Called on the journal executor.
+    private static void traceBridgeLoad(long detectedAt) {
+        if (bridgeLoadTraced || detectedAt == 0 || bridgeLoadedAt == 0 || Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            return;
+        }
+        long startedAt = Process.getStartElapsedRealtime() * 1000000L;
+        if (detectedAt > startedAt || startedAt - detectedAt > RelaunchCoordinator.CONFIRM_TIMEOUT * 1000000L) {
+            return;
         }
+        bridgeLoadTraced = true;
+        RelaunchTrace.record(RelaunchTrace.BRIDGE_LOAD, startedAt, bridgeLoadedAt, detectedAt);
+    }
+
+    // Deliver journal entries not yet handed to the bridge in batches, then keep the journal
+    // bounded. Entries stay undelivered on disk until a listener acks them through ackEvent().
+    private void replayJournal() {
+        final Context context = getContext();
+        final RelaunchJournal journal = RelaunchJournal.get(context);
+        journalExecutor.execute(() -> {
+            try {
+                List<MonitorTarget> targets = ConfigStore.get(context).config.targets;
+                boolean hasState = StateStore.get(context).hasState();
+                ExitReasonStats exits = ExitReasonStats.get(context);
+                boolean folded = false;
+                List<RelaunchJournal.Entry> batch;
+                while (!(batch = journal.readUndelivered(dispatchedSequence, REPLAY_BATCH)).isEmpty()) {
+                    for (RelaunchJournal.Entry entry : batch) {
+                        dispatchedSequence = entry.sequence;
+                        if (entry.path == RelaunchJournal.PATH_HANG_REPORT) {
+                            JSObject hang = new JSObject();
+                            hang.put("sequence", entry.sequence);
+                            hang.put("timestamp", entry.timestamp);
+                            hang.put("blockedMs", entry.latencyMs);
+                            hang.put("stack", journal.readAttachment(entry.sequence));
+                            notifyListeners("hang", hang, true);
+                            continue;
+                        }
+                        JSObject data = new JSObject();
+                        data.put("sequence", entry.sequence);
+                        data.put("relaunch", true);
+                        data.put("timestamp", entry.timestamp);
+                        data.put("path", RelaunchJournal.pathName(entry.path));
+                        data.put("latencyMs", entry.latencyMs);
+                        byte exitReason = entry.exitReason;
+                        if (exitReason == RelaunchJournal.EXIT_REASON_UNKNOWN && entry.target == RelaunchJournal.TARGET_APP) {
+                            // By now the system recorded the exit, it happened between the last
+                            // sign of life and the relaunch
+                            if (!folded) {
+                                exits.fold(context);
+                                folded = true;
+                            }
+                            // A hung app journals its relaunch before killing itself
+                            boolean killedAfter = entry.path == RelaunchJournal.PATH_HANG
+                                    || entry.path == RelaunchJournal.PATH_JS_PROBE;
+                            exitReason = (byte) exits.reasonBetween(entry.timestamp - entry.latencyMs - EXIT_MATCH_SLACK,
+                                    killedAfter ? entry.timestamp + EXIT_MATCH_SLACK : entry.timestamp);
+                        }
+                        data.put("exitReason", RelaunchJournal.exitReasonName(exitReason));
+                        // Tells the app that restoreState() can resume where it died
+                        data.put("hasState", hasState);
+                        if (entry.target > 0 && entry.target <= targets.size()) {
+                            data.put("target", targets.get(entry.target - 1).processName);
+                        }
+                        if (entry.target == RelaunchJournal.TARGET_APP) {
+                            traceBridgeLoad(entry.detectedAt);
+                        }
+                        // Retained until a listener is registered, JS usually subscribes after load.
+                        // The delivery span ends when the listener acks the event.
+                        RelaunchTrace.beginAsyncSection(RelaunchTrace.EVENT_DELIVERY, (int) entry.sequence);
+                        pendingDeliveries.put(entry.sequence, new long[] { SystemClock.elapsedRealtimeNanos(), entry.detectedAt });
+                        notifyListeners("relaunch", data, true);
+                    }
+                }
+                journal.compact();
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to replay relaunch journal: " + e.getMessage(), e);
+            }
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.app.Service;
+import android.content.Intent;
+import android.os.Binder;
+import android.os.IBinder;
+
+// Lives in the app process so the out-of-process watchdog can hold a Binder to it
+// and receive a death notification the moment the app process goes away
+public class AppBinderService extends Service {
+
+    private final IBinder anchor = new Binder();
+
+    // Hand out the anchor Binder the watchdog links to
+    @Override
+    public IBinder onBind(Intent intent) {
+        return anchor;
+    }
+}
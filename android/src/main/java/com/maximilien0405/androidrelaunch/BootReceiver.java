@@ -0,0 +1,79 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Restores monitoring after a reboot when it was enabled before shutdown. The service is
+// started directly, without any activity or WebView, after a delay plus random jitter so
+// it stays out of the boot storm. The boot broadcast is ordered and is never held for the
+// delay: an alarm brings the restore back to this receiver, or since API 31 the service
+// is started right away and waits out the delay itself.
+public class BootReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "BootReceiver";
+
+    static final String ACTION_RESTORE = "com.maximilien0405.androidrelaunch.RESTORE_MONITORING";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent != null ? intent.getAction() : null;
+        if (!Intent.ACTION_BOOT_COMPLETED.equals(action) && !ACTION_RESTORE.equals(action)) {
+            return;
+        }
+
+        final Context appContext = context.getApplicationContext();
+        ConfigStore.Snapshot snapshot = ConfigStore.get(appContext);
+        if (!snapshot.enabled) {
+            return;
+        }
+
+        final WatchdogConfig config = snapshot.config;
+        if (!config.startOnBoot) {
+            return;
+        }
+
+        // The job mode only schedules a job that waits one interval anyway
+        if (ACTION_RESTORE.equals(action) || AndroidRelaunchPlugin.MODE_JOB.equals(config.mode)) {
+            restore(appContext, config, 0);
+            return;
+        }
+
+        long jitter = config.bootJitter > 0 ? ThreadLocalRandom.current().nextLong(config.bootJitter + 1) : 0;
+        long delay = config.bootDelay + jitter;
+        // Since API 31 a foreground service can no longer be started from the background once
+        // the boot broadcast was handled, it is started now and defers its own work
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            Log.d(TAG, "Restoring relaunch monitoring, first check in " + delay + " ms");
+            restore(appContext, config, delay);
+            return;
+        }
+
+        Log.d(TAG, "Restoring relaunch monitoring in " + delay + " ms");
+        try {
+            Intent restore = new Intent(appContext, BootReceiver.class).setAction(ACTION_RESTORE);
+            PendingIntent pending = PendingIntent.getBroadcast(appContext, 0, restore,
+                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+            AlarmManager alarmManager = (AlarmManager) appContext.getSystemService(Context.ALARM_SERVICE);
+            alarmManager.set(AlarmManager.ELAPSED_REALTIME_WAKEUP, SystemClock.elapsedRealtime() + delay, pending);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to defer monitoring restore, restoring now: " + e.getMessage(), e);
+            restore(appContext, config, 0);
+        }
+    }
+
+    private static void restore(Context context, WatchdogConfig config, long startDelay) {
+        try {
+            AndroidRelaunchPlugin.startMonitoring(context, config, startDelay);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to restore monitoring after boot: " + e.getMessage(), e);
+        }
+    }
+}
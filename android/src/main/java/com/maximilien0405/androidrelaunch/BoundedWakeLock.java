@@ -0,0 +1,53 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.content.Context;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+// Partial wake lock held only around a check or relaunch. Every acquire carries a hard
+// timeout, so a check that never returns cannot keep the CPU awake, and the time it was
+// actually held is recorded in RelaunchStats.wakeLockHeld.
+public class BoundedWakeLock {
+
+    private static final String TAG = "BoundedWakeLock";
+
+    private final PowerManager.WakeLock wakeLock;
+    private long acquiredAt = 0;
+
+    BoundedWakeLock(Context context, String tag) {
+        PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        wakeLock = pm != null ? pm.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, tag) : null;
+        if (wakeLock != null) {
+            // Nested acquires extend the same hold instead of stacking
+            wakeLock.setReferenceCounted(false);
+        }
+    }
+
+    // Keep the CPU awake for at most timeoutMs
+    synchronized void acquire(long timeoutMs) {
+        if (wakeLock == null) return;
+        try {
+            if (acquiredAt == 0) {
+                acquiredAt = SystemClock.elapsedRealtime();
+            }
+            wakeLock.acquire(timeoutMs);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to acquire wake lock: " + e.getMessage(), e);
+        }
+    }
+
+    // Let the CPU sleep again and record how long it was held
+    synchronized void release() {
+        if (wakeLock == null || acquiredAt == 0) return;
+        RelaunchStats.wakeLockHeld.recordMicros((SystemClock.elapsedRealtime() - acquiredAt) * 1000L);
+        acquiredAt = 0;
+        try {
+            if (wakeLock.isHeld()) {
+                wakeLock.release();
+            }
+        } catch (Exception e) {
+            // Already released by its timeout
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.os.SystemClock;
+
+// Monotonic time source of the monitoring logic, replaced by a virtual clock when the
+// heartbeat and relaunch paths are simulated on the JVM
+public interface Clock {
+
+    // Current time in nanoseconds, only differences are meaningful
+    long nanos();
+
+    // SystemClock.elapsedRealtimeNanos(), keeps counting in deep sleep like the alarms do
+    Clock ELAPSED_REALTIME = SystemClock::elapsedRealtimeNanos;
+
+    // System.nanoTime(), for short intervals such as cache lifetimes
+    Clock NANO_TIME = System::nanoTime;
+}
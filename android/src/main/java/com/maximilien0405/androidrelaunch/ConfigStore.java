@@ -0,0 +1,133 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+// Enabled flag and watchdog settings, persisted in a small file so a process restarted by
+// START_STICKY or at boot resumes with the last enable(). The file is read once into an
+// immutable snapshot; enable() and disable() write it atomically and then publish the new
+// snapshot with one volatile write, so the monitoring hot path never locks or touches disk.
+//
+// File layout, big endian (DataOutputStream):
+//   int magic, short version, boolean enabled, then the WatchdogConfig fields
+public class ConfigStore {
+
+    private static final String TAG = "ConfigStore";
+    private static final int MAGIC = 0x41524346;
+    private static final short VERSION = 1;
+
+    // Enabled flag and settings as one immutable value
+    public static final class Snapshot {
+        public final boolean enabled;
+        public final WatchdogConfig config;
+
+        Snapshot(boolean enabled, WatchdogConfig config) {
+            this.enabled = enabled;
+            this.config = config;
+        }
+    }
+
+    private static final Snapshot DISABLED = new Snapshot(false, WatchdogConfig.defaults());
+
+    private static volatile Snapshot current;
+
+    private ConfigStore() {}
+
+    // Current snapshot without touching disk, disabled until get() or publish() ran in this process
+    static Snapshot current() {
+        Snapshot snapshot = current;
+        return snapshot != null ? snapshot : DISABLED;
+    }
+
+    // Current snapshot, read from disk the first time in this process
+    static Snapshot get(Context context) {
+        Snapshot snapshot = current;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        synchronized (ConfigStore.class) {
+            if (current == null) {
+                current = read(file(context));
+            }
+            return current;
+        }
+    }
+
+    // Re-read the file, for processes that did not publish the last change themselves
+    static synchronized Snapshot reload(Context context) {
+        current = read(file(context));
+        return current;
+    }
+
+    // Persist a new snapshot, then make it visible to this process with a single swap
+    static synchronized Snapshot publish(Context context, boolean enabled, WatchdogConfig config) throws IOException {
+        Snapshot snapshot = new Snapshot(enabled, config);
+        write(file(context), snapshot);
+        current = snapshot;
+        return snapshot;
+    }
+
+    // Settings file in the app's files dir, shared by all processes of the app
+    static File file(Context context) {
+        return new File(new File(context.getFilesDir(), "androidrelaunch"), "config.bin");
+    }
+
+    private static Snapshot read(File file) {
+        AtomicFile atomicFile = new AtomicFile(file);
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(atomicFile.openRead());
+            int magic = in.readInt();
+            short version = in.readShort();
+            if (magic != MAGIC || version != VERSION) {
+                Log.w(TAG, "Ignoring incompatible config file");
+                return DISABLED;
+            }
+            boolean enabled = in.readBoolean();
+            return new Snapshot(enabled, WatchdogConfig.readFrom(in));
+        } catch (FileNotFoundException e) {
+            // Never enabled on this install
+            return DISABLED;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read config: " + e.getMessage(), e);
+            return DISABLED;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // Nothing left to read
+                }
+            }
+        }
+    }
+
+    private static void write(File file, Snapshot snapshot) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        AtomicFile atomicFile = new AtomicFile(file);
+        FileOutputStream stream = atomicFile.startWrite();
+        try {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeBoolean(snapshot.enabled);
+            snapshot.config.writeTo(out);
+            out.flush();
+            atomicFile.finishWrite(stream);
+        } catch (IOException e) {
+            atomicFile.failWrite(stream);
+            throw e;
+        }
+    }
+}
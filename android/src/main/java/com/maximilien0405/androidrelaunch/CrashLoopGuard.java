@@ -0,0 +1,260 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.HashMap;
+import java.util.Map;
+
+// Relaunch budget shared by every process of the app. Relaunches are paid from a token
+// bucket and recorded in a fixed-size on-disk ring; running out of tokens or too many
+// relaunches inside the loop window starts a cool-down that doubles on each repeat.
+//
+// File layout, little endian:
+//   0  int   magic
+//   4  short version
+//   6  short ring capacity
+//   8  int   ring head, next slot to write
+//   12 int   ring count
+//   16 long  tokens in thousandths
+//   24 long  last refill time
+//   32 long  cool-down end time
+//   40 int   backoff level
+//   44 int   reserved
+//   48 long[capacity] relaunch timestamps
+public class CrashLoopGuard {
+
+    static final int CAPACITY = 16;
+    static final int BURST = 3;
+    static final long REFILL_INTERVAL = 60000;
+    static final int LOOP_THRESHOLD = 5;
+    static final long LOOP_WINDOW = 300000;
+    static final long BASE_COOLDOWN = 60000;
+    static final long MAX_COOLDOWN = 3600000;
+    static final long STABLE_RESET = 1800000;
+
+    private static final int MAGIC = 0x4152434C;
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 48;
+    private static final int FILE_SIZE = HEADER_SIZE + CAPACITY * 8;
+    private static final long TOKEN_SCALE = 1000;
+
+    private static CrashLoopGuard instance;
+    private static final Map<String, CrashLoopGuard> targetGuards = new HashMap<>();
+
+    private final File file;
+
+    // State loaded from disk under the file lock
+    private int head;
+    private int count;
+    private long tokens;
+    private long lastRefill;
+    private long cooldownUntil;
+    private int backoffLevel;
+    private final long[] ring = new long[CAPACITY];
+
+    // Snapshot of the guard for reporting
+    public static class Status {
+        public final boolean coolingDown;
+        public final long cooldownUntil;
+        public final int backoffLevel;
+        public final double tokens;
+        public final long[] recentRelaunches;
+
+        Status(boolean coolingDown, long cooldownUntil, int backoffLevel, double tokens, long[] recentRelaunches) {
+            this.coolingDown = coolingDown;
+            this.cooldownUntil = cooldownUntil;
+            this.backoffLevel = backoffLevel;
+            this.tokens = tokens;
+            this.recentRelaunches = recentRelaunches;
+        }
+    }
+
+    CrashLoopGuard(File file) {
+        this.file = file;
+    }
+
+    // Guard backed by the app's files dir, shared by all callers in this process
+    static synchronized CrashLoopGuard get(Context context) {
+        if (instance == null) {
+            instance = new CrashLoopGuard(new File(new File(context.getFilesDir(), "androidrelaunch"), "relaunch-guard.bin"));
+        }
+        return instance;
+    }
+
+    // Separate budget for each extra monitored process, so one crashing target cannot starve the others
+    static synchronized CrashLoopGuard forTarget(Context context, String processName) {
+        CrashLoopGuard guard = targetGuards.get(processName);
+        if (guard == null) {
+            String name = "relaunch-guard-" + processName.replaceAll("[^A-Za-z0-9._-]", "_") + ".bin";
+            guard = new CrashLoopGuard(new File(new File(context.getFilesDir(), "androidrelaunch"), name));
+            targetGuards.put(processName, guard);
+        }
+        return guard;
+    }
+
+    // Spend one relaunch, returns false while cooling down or when the budget is exhausted
+    synchronized boolean tryAcquire(long now) throws IOException {
+        try (RandomAccessFile raf = open()) {
+            FileChannel channel = raf.getChannel();
+            FileLock lock = channel.lock();
+            try {
+                load(channel, now);
+                if (now < cooldownUntil) {
+                    return false;
+                }
+                
+                refill(now);
+                long last = count > 0 ? ring[(head - 1 + CAPACITY) % CAPACITY] : 0;
+                if (count > 0 && now - last >= STABLE_RESET) {
+                    backoffLevel = 0;
+                }
+
+                if (tokens < TOKEN_SCALE || countSince(now - LOOP_WINDOW) + 1 >= LOOP_THRESHOLD) {
+                    backoffLevel++;
+                    long cooldown = BASE_COOLDOWN << Math.min(backoffLevel - 1, 16);
+                    cooldownUntil = now + Math.min(cooldown, MAX_COOLDOWN);
+                    save(channel);
+                    return false;
+                }
+
+                tokens -= TOKEN_SCALE;
+                ring[head] = now;
+                head = (head + 1) % CAPACITY;
+                count = Math.min(count + 1, CAPACITY);
+                save(channel);
+                return true;
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    // Earliest wall clock time tryAcquire() can succeed: the end of the cool-down, the next
+    // whole token and the oldest relaunch of a full loop window leaving it. now when it
+    // would already succeed.
+    synchronized long nextAcquireAt(long now) throws IOException {
+        try (RandomAccessFile raf = open()) {
+            FileChannel channel = raf.getChannel();
+            FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+            try {
+                load(channel, now);
+                refill(now);
+                long at = Math.max(now, cooldownUntil);
+                if (tokens < TOKEN_SCALE) {
+                    long missing = TOKEN_SCALE - tokens;
+                    at = Math.max(at, lastRefill + (missing * REFILL_INTERVAL + TOKEN_SCALE - 1) / TOKEN_SCALE);
+                }
+                // One more relaunch must stay under the loop threshold
+                int allowed = LOOP_THRESHOLD - 2;
+                if (count > allowed) {
+                    long leaving = ring[(head - 1 - allowed + CAPACITY) % CAPACITY];
+                    at = Math.max(at, leaving + LOOP_WINDOW + 1);
+                }
+                return at;
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    // Read the current state without spending anything
+    synchronized Status getStatus(long now) throws IOException {
+        try (RandomAccessFile raf = open()) {
+            FileChannel channel = raf.getChannel();
+            FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+            try {
+                load(channel, now);
+                refill(now);
+                long[] recent = new long[count];
+                for (int i = 0; i < count; i++) {
+                    recent[i] = ring[(head - count + i + CAPACITY) % CAPACITY];
+                }
+                return new Status(now < cooldownUntil, cooldownUntil, backoffLevel, tokens / (double) TOKEN_SCALE, recent);
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    private RandomAccessFile open() throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        return new RandomAccessFile(file, "rw");
+    }
+
+    private void load(FileChannel channel, long now) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(FILE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        int read = channel.read(buffer, 0);
+        if (read < FILE_SIZE || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION || buffer.getShort(6) != CAPACITY) {
+            // Missing or foreign file, start with a full budget
+            head = 0;
+            count = 0;
+            tokens = BURST * TOKEN_SCALE;
+            lastRefill = now;
+            cooldownUntil = 0;
+            backoffLevel = 0;
+            return;
+        }
+        head = buffer.getInt(8);
+        count = buffer.getInt(12);
+        tokens = buffer.getLong(16);
+        lastRefill = buffer.getLong(24);
+        cooldownUntil = buffer.getLong(32);
+        backoffLevel = buffer.getInt(40);
+        for (int i = 0; i < CAPACITY; i++) {
+            ring[i] = buffer.getLong(HEADER_SIZE + i * 8);
+        }
+        if (head < 0 || head >= CAPACITY || count < 0 || count > CAPACITY) {
+            head = 0;
+            count = 0;
+        }
+    }
+
+    private void save(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(FILE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0, MAGIC);
+        buffer.putShort(4, VERSION);
+        buffer.putShort(6, (short) CAPACITY);
+        buffer.putInt(8, head);
+        buffer.putInt(12, count);
+        buffer.putLong(16, tokens);
+        buffer.putLong(24, lastRefill);
+        buffer.putLong(32, cooldownUntil);
+        buffer.putInt(40, backoffLevel);
+        for (int i = 0; i < CAPACITY; i++) {
+            buffer.putLong(HEADER_SIZE + i * 8, ring[i]);
+        }
+        channel.write(buffer, 0);
+        channel.force(false);
+    }
+
+    private void refill(long now) {
+        if (now < lastRefill) {
+            // Wall clock went backwards, restart the refill from here
+            lastRefill = now;
+            return;
+        }
+        long earned = (now - lastRefill) * TOKEN_SCALE / REFILL_INTERVAL;
+        if (earned > 0) {
+            tokens = Math.min(BURST * TOKEN_SCALE, tokens + earned);
+            lastRefill = now;
+        }
+    }
+
+    private int countSince(long since) {
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (ring[(head - 1 - i + CAPACITY) % CAPACITY] >= since) n++;
+        }
+        return n;
+    }
+}
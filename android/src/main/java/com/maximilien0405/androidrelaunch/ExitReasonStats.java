@@ -0,0 +1,240 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.app.ActivityManager;
+import android.app.ApplicationExitInfo;
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import com.getcapacitor.JSObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.Arrays;
+import java.util.List;
+
+// On-device aggregate of why the app process died, folded from ApplicationExitInfo (API 30+).
+// Every fold reads only the exits newer than the last one already counted, so the system
+// history can be queried whenever the relaunched app replays its journal without double
+// counting. Shared by all processes of the app through a file lock, like the relaunch budget.
+//
+// File layout, little endian:
+//   0  int   magic
+//   4  short version
+//   6  short reason slots
+//   8  long  timestamp of the newest folded exit
+//   16 long  time of the first fold
+//   24 record[slots], one per ApplicationExitInfo reason:
+//        int count, int samples with memory info, long pss sum, long pss max,
+//        long rss sum, long rss max (KB), long last exit time, int[IMPORTANCES] counts
+public class ExitReasonStats {
+
+    private static final String TAG = "ExitReasonStats";
+
+    // ApplicationExitInfo.REASON_* values, indexed by reason
+    private static final String[] REASON_NAMES = {
+        "unknown", "exitSelf", "signaled", "lowMemory", "crash", "crashNative", "anr",
+        "initializationFailure", "permissionChange", "excessiveResourceUsage", "userRequested",
+        "userStopped", "dependencyDied", "other", "freezer", "packageStateChange", "packageUpdated"
+    };
+    // Process importance at death, bucketed by RunningAppProcessInfo.IMPORTANCE_* upper bounds
+    private static final String[] IMPORTANCE_NAMES = {
+        "foreground", "foregroundService", "visible", "perceptible", "service", "cached"
+    };
+    private static final int[] IMPORTANCE_LIMITS = { 100, 125, 200, 230, 300, Integer.MAX_VALUE };
+
+    static final int SLOTS = REASON_NAMES.length;
+    static final int IMPORTANCES = IMPORTANCE_NAMES.length;
+
+    // Exits read from the system per fold, older ones were folded before or are lost anyway
+    private static final int MAX_EXITS = 16;
+
+    private static final int MAGIC = 0x41524558;
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int RECORD_SIZE = 48 + IMPORTANCES * 4;
+    private static final int FILE_SIZE = HEADER_SIZE + SLOTS * RECORD_SIZE;
+
+    private static ExitReasonStats instance;
+
+    private final File file;
+    private final ByteBuffer buffer = ByteBuffer.allocate(FILE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    // Exits of the app process returned by the last fold, newest first
+    private final long[] recentAt = new long[MAX_EXITS];
+    private final int[] recentReasons = new int[MAX_EXITS];
+    private int recentCount = 0;
+
+    ExitReasonStats(File file) {
+        this.file = file;
+    }
+
+    // Aggregate in the app's files dir, shared by all callers in this process
+    static synchronized ExitReasonStats get(Context context) {
+        if (instance == null) {
+            instance = new ExitReasonStats(new File(new File(context.getFilesDir(), "androidrelaunch"), "exit-reasons.bin"));
+        }
+        return instance;
+    }
+
+    // Name of an ApplicationExitInfo reason as reported to JavaScript
+    static String reasonName(int reason) {
+        return reason >= 0 && reason < SLOTS ? REASON_NAMES[reason] : "unknown";
+    }
+
+    // Fold the app process exits recorded since the last fold. A binder query and a synced
+    // write, keep it off the main thread.
+    synchronized void fold(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R) {
+            return;
+        }
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (am == null) {
+            return;
+        }
+        String processName = context.getPackageName();
+        try (RandomAccessFile raf = open()) {
+            FileChannel channel = raf.getChannel();
+            FileLock lock = channel.lock();
+            try {
+                load(channel);
+                long lastExitAt = buffer.getLong(8);
+                if (buffer.getLong(16) == 0) {
+                    buffer.putLong(16, System.currentTimeMillis());
+                }
+
+                // Newest first
+                List<ApplicationExitInfo> exits = am.getHistoricalProcessExitReasons(context.getPackageName(), 0, MAX_EXITS);
+                long newestAt = lastExitAt;
+                recentCount = 0;
+                for (int i = exits.size() - 1; i >= 0; i--) {
+                    ApplicationExitInfo exit = exits.get(i);
+                    if (!processName.equals(exit.getProcessName())) continue;
+                    recentAt[recentCount] = exit.getTimestamp();
+                    recentReasons[recentCount] = exit.getReason();
+                    recentCount++;
+                    if (exit.getTimestamp() <= lastExitAt) continue;
+                    record(exit.getReason(), exit.getTimestamp(), exit.getPss(), exit.getRss(), exit.getImportance());
+                    newestAt = Math.max(newestAt, exit.getTimestamp());
+                }
+                buffer.putLong(8, newestAt);
+                save(channel);
+            } finally {
+                lock.release();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to fold exit reasons: " + e.getMessage(), e);
+        }
+    }
+
+    // Reason of the newest app process exit the last fold saw between from and to, epoch
+    // milliseconds, or REASON_UNKNOWN when there is none
+    synchronized int reasonBetween(long from, long to) {
+        int reason = 0;
+        long newestAt = Long.MIN_VALUE;
+        for (int i = 0; i < recentCount; i++) {
+            if (recentAt[i] >= from && recentAt[i] <= to && recentAt[i] > newestAt) {
+                newestAt = recentAt[i];
+                reason = recentReasons[i];
+            }
+        }
+        return reason;
+    }
+
+    // Aggregate for getExitReasons(), only reasons seen at least once
+    synchronized JSObject toJSObject() throws IOException {
+        try (RandomAccessFile raf = open()) {
+            FileChannel channel = raf.getChannel();
+            FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+            try {
+                load(channel);
+            } finally {
+                lock.release();
+            }
+        }
+
+        JSObject reasons = new JSObject();
+        int total = 0;
+        for (int reason = 0; reason < SLOTS; reason++) {
+            int at = HEADER_SIZE + reason * RECORD_SIZE;
+            int count = buffer.getInt(at);
+            if (count == 0) continue;
+            total += count;
+            int samples = buffer.getInt(at + 4);
+
+            JSObject entry = new JSObject();
+            entry.put("count", count);
+            entry.put("lastAt", buffer.getLong(at + 40));
+            entry.put("pss", memory(buffer.getLong(at + 8), buffer.getLong(at + 16), samples));
+            entry.put("rss", memory(buffer.getLong(at + 24), buffer.getLong(at + 32), samples));
+            JSObject importance = new JSObject();
+            for (int i = 0; i < IMPORTANCES; i++) {
+                importance.put(IMPORTANCE_NAMES[i], buffer.getInt(at + 48 + i * 4));
+            }
+            entry.put("importance", importance);
+            reasons.put(REASON_NAMES[reason], entry);
+        }
+
+        JSObject result = new JSObject();
+        result.put("supported", Build.VERSION.SDK_INT >= Build.VERSION_CODES.R);
+        result.put("since", buffer.getLong(16));
+        result.put("total", total);
+        result.put("reasons", reasons);
+        return result;
+    }
+
+    private void record(int reason, long timestamp, long pssKb, long rssKb, int importance) {
+        int at = HEADER_SIZE + (reason >= 0 && reason < SLOTS ? reason : 0) * RECORD_SIZE;
+        buffer.putInt(at, buffer.getInt(at) + 1);
+        // Memory is only sampled for some exits, 0 means not known
+        if (pssKb > 0 || rssKb > 0) {
+            buffer.putInt(at + 4, buffer.getInt(at + 4) + 1);
+            buffer.putLong(at + 8, buffer.getLong(at + 8) + pssKb);
+            buffer.putLong(at + 16, Math.max(buffer.getLong(at + 16), pssKb));
+            buffer.putLong(at + 24, buffer.getLong(at + 24) + rssKb);
+            buffer.putLong(at + 32, Math.max(buffer.getLong(at + 32), rssKb));
+        }
+        buffer.putLong(at + 40, Math.max(buffer.getLong(at + 40), timestamp));
+        int bucket = 0;
+        while (importance > IMPORTANCE_LIMITS[bucket]) bucket++;
+        int slot = at + 48 + bucket * 4;
+        buffer.putInt(slot, buffer.getInt(slot) + 1);
+    }
+
+    private static JSObject memory(long sumKb, long maxKb, int samples) {
+        JSObject memory = new JSObject();
+        memory.put("avgKb", samples > 0 ? sumKb / samples : 0);
+        memory.put("maxKb", maxKb);
+        return memory;
+    }
+
+    private RandomAccessFile open() throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        return new RandomAccessFile(file, "rw");
+    }
+
+    private void load(FileChannel channel) throws IOException {
+        buffer.clear();
+        int read = channel.read(buffer, 0);
+        if (read < FILE_SIZE || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION || buffer.getShort(6) != SLOTS) {
+            // Missing or foreign file, start counting from scratch
+            Arrays.fill(buffer.array(), (byte) 0);
+        }
+    }
+
+    private void save(FileChannel channel) throws IOException {
+        buffer.putInt(0, MAGIC);
+        buffer.putShort(4, VERSION);
+        buffer.putShort(6, (short) SLOTS);
+        buffer.clear();
+        channel.write(buffer, 0);
+        channel.force(false);
+    }
+}
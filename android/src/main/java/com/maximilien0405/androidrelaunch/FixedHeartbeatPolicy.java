@@ -0,0 +1,27 @@
+package com.maximilien0405.androidrelaunch;
+
+// Always waits the same interval between heartbeats
+public class FixedHeartbeatPolicy implements HeartbeatPolicy {
+
+    static final String NAME = "fixed";
+
+    private final long interval;
+
+    public FixedHeartbeatPolicy(long interval) {
+        this.interval = interval;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public long getInterval() {
+        return interval;
+    }
+
+    @Override
+    public void onCheck(long now, boolean killed) {
+    }
+}
@@ -0,0 +1,147 @@
+package com.maximilien0405.androidrelaunch;
+
+// Heartbeat and service-destroyed relaunch logic of KeepAliveService, free of Android types
+// so the same code runs against a virtual clock and scheduler in the JVM simulation.
+// KeepAliveService supplies the monitor thread, alarms, wake locks and the real relauncher.
+public class HeartbeatMonitor {
+
+    // Checks running later than this are counted as delayed
+    static final long DELAY_TOLERANCE = 1000;
+
+    // What the monitor needs from the service around it
+    public interface Host {
+
+        // Whether monitoring is still enabled
+        boolean isEnabled();
+
+        // Whether the app beat the heartbeat slot recently
+        boolean isSlotFresh();
+
+        // Whether the app process is alive, asked only when the slot is not fresh
+        boolean isProcessAlive();
+
+        // Relaunch the app through RelaunchCoordinator.tryBegin(guard, now), returns true if a
+        // launch was issued. detectedAt is the Clock time in nanoseconds at which the death was detected.
+        boolean relaunch(byte path, long latencyMs, long detectedAt);
+
+        // Called after every completed check
+        void onChecked();
+    }
+
+    // Runs the monitor's work later, on one thread
+    public interface Scheduler {
+
+        // Call check() after delayMs, replacing a pending check
+        void scheduleCheck(long delayMs);
+
+        // Drop a pending check
+        void cancelCheck();
+
+        // Run task after delayMs
+        void postDelayed(Runnable task, long delayMs);
+    }
+
+    private final Clock clock;
+    private final Scheduler scheduler;
+    private final Host host;
+
+    private HeartbeatPolicy policy;
+    private long lastAliveAt;
+    // Clock time in milliseconds at which the next check is due
+    private long checkDueAt;
+    private volatile boolean destroyed = false;
+
+    public HeartbeatMonitor(Clock clock, Scheduler scheduler, Host host) {
+        this.clock = clock;
+        this.scheduler = scheduler;
+        this.host = host;
+        this.lastAliveAt = now();
+    }
+
+    // (Re)start checking with the given policy
+    public void start(HeartbeatPolicy heartbeatPolicy) {
+        scheduler.cancelCheck();
+        policy = heartbeatPolicy;
+        schedule(policy.getInterval());
+    }
+
+    public HeartbeatPolicy getPolicy() {
+        return policy;
+    }
+
+    public boolean isDestroyed() {
+        return destroyed;
+    }
+
+    // Check if app process is running and schedule next heartbeat
+    public void check() {
+        if (destroyed || !host.isEnabled()) {
+            RelaunchStats.increment(RelaunchStats.SKIPPED_CHECKS);
+            return;
+        }
+
+        RelaunchStats.increment(RelaunchStats.HEARTBEATS);
+        long delay = now() - checkDueAt;
+        RelaunchStats.checkDelay.recordMicros(delay * 1000L);
+        if (delay > DELAY_TOLERANCE) {
+            RelaunchStats.increment(RelaunchStats.DELAYED_CHECKS);
+        }
+
+        boolean killed = !isAppAlive();
+        if (killed) {
+            relaunch(RelaunchJournal.PATH_HEARTBEAT, now() - lastAliveAt, clock.nanos());
+        } else {
+            lastAliveAt = now();
+        }
+        policy.onCheck(now(), killed);
+        host.onChecked();
+
+        if (!destroyed && host.isEnabled()) {
+            schedule(policy.getInterval());
+        }
+    }
+
+    // The service is going away, relaunch the app after relaunchDelay if it is not running,
+    // then run done. A launch already in flight for the same death is coalesced by the relauncher.
+    public void onDestroyed(final long relaunchDelay, final Runnable done) {
+        destroyed = true;
+        scheduler.cancelCheck();
+
+        if (!host.isEnabled()) {
+            done.run();
+            return;
+        }
+        final long detectedAt = clock.nanos();
+        scheduler.postDelayed(() -> {
+            if (!isAppAlive()) {
+                relaunch(RelaunchJournal.PATH_SERVICE_DESTROYED, relaunchDelay, detectedAt);
+            }
+            done.run();
+        }, relaunchDelay);
+    }
+
+    // Trust a fresh heartbeat slot, only probe the process when the slot says nothing
+    boolean isAppAlive() {
+        if (host.isSlotFresh()) {
+            RelaunchStats.increment(RelaunchStats.SLOT_CHECKS);
+            return true;
+        }
+        return host.isProcessAlive();
+    }
+
+    private void relaunch(byte path, long latencyMs, long detectedAt) {
+        if (!host.isEnabled()) {
+            return;
+        }
+        host.relaunch(path, latencyMs, detectedAt);
+    }
+
+    private void schedule(long delay) {
+        checkDueAt = now() + delay;
+        scheduler.scheduleCheck(delay);
+    }
+
+    private long now() {
+        return clock.nanos() / 1000000L;
+    }
+}
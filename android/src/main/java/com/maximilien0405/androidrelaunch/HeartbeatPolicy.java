@@ -0,0 +1,14 @@
+package com.maximilien0405.androidrelaunch;
+
+// Decides how long KeepAliveService waits between two liveness checks
+public interface HeartbeatPolicy {
+
+    // Name reported to JavaScript
+    String getName();
+
+    // Delay in milliseconds before the next heartbeat
+    long getInterval();
+
+    // Feed the outcome of a check, killed is true when the app was found dead
+    void onCheck(long now, boolean killed);
+}
@@ -0,0 +1,211 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Small memory-mapped file the app process stamps from its main looper and the watchdog
+// reads without any IPC. Writes are guarded by a sequence lock plus a checksum so a reader
+// never accepts a torn slot, and the header carries a version so both sides can evolve.
+//
+// Layout, little endian:
+//   0  int   magic
+//   4  byte  major version, readers reject other majors
+//   5  byte  minor version, any minor of a known major is read
+//   6  short slot size, at least SIZE, newer minors may only append fields
+//   8  long  sequence, odd while a write is in progress
+//   16 long  timestamp, SystemClock.elapsedRealtimeNanos() of the last beat
+//   24 long  beat counter
+//   32 int   pid of the writer
+//   36 int   state, STATE_ACTIVE or STATE_CLOSED
+//   40 long  checksum of the fields above
+public class HeartbeatSlot {
+
+    static final int MAGIC = 0x41524842;
+    static final byte MAJOR_VERSION = 1;
+    static final byte MINOR_VERSION = 0;
+    static final int SIZE = 64;
+
+    static final int STATE_ACTIVE = 1;
+    static final int STATE_CLOSED = 2;
+
+    static final int RESULT_OK = 0;
+    static final int RESULT_MISSING = 1;
+    static final int RESULT_INCOMPATIBLE = 2;
+    static final int RESULT_TORN = 3;
+
+    private static final int OFFSET_MAGIC = 0;
+    private static final int OFFSET_MAJOR = 4;
+    private static final int OFFSET_MINOR = 5;
+    private static final int OFFSET_SIZE = 6;
+    private static final int OFFSET_SEQUENCE = 8;
+    private static final int OFFSET_TIMESTAMP = 16;
+    private static final int OFFSET_COUNTER = 24;
+    private static final int OFFSET_PID = 32;
+    private static final int OFFSET_STATE = 36;
+    private static final int OFFSET_CHECKSUM = 40;
+    private static final int READ_ATTEMPTS = 4;
+
+    private final File file;
+    private final boolean writable;
+    private MappedByteBuffer buffer;
+    // Length of the file when it was mapped, the size field must fit in it
+    private long fileLength;
+
+    private long sequence;
+    private long counter;
+
+    // Fields of the last successful read
+    private long timestamp;
+    private long beats;
+    private int pid;
+    private int state;
+
+    private HeartbeatSlot(File file, boolean writable) {
+        this.file = file;
+        this.writable = writable;
+    }
+
+    // Location of the slot shared by all processes of the app
+    static File file(Context context) {
+        return new File(new File(context.getFilesDir(), "androidrelaunch"), "heartbeat.slot");
+    }
+
+    // Map the slot for writing, creating it if needed
+    static HeartbeatSlot openForWrite(File file) throws IOException {
+        HeartbeatSlot slot = new HeartbeatSlot(file, true);
+        slot.map();
+        return slot;
+    }
+
+    // Reader that maps the slot lazily once the app has created it
+    static HeartbeatSlot openForRead(File file) {
+        return new HeartbeatSlot(file, false);
+    }
+
+    // Publish a beat, allocation-free
+    synchronized void write(long nowNanos, int writerPid, int writerState) {
+        if (buffer == null) return;
+        long start = sequence + 1;
+        if ((start & 1) == 0) start++;
+        buffer.putLong(OFFSET_SEQUENCE, start);
+        buffer.putLong(OFFSET_TIMESTAMP, nowNanos);
+        buffer.putLong(OFFSET_COUNTER, ++counter);
+        buffer.putInt(OFFSET_PID, writerPid);
+        buffer.putInt(OFFSET_STATE, writerState);
+        buffer.putLong(OFFSET_CHECKSUM, checksum(start, nowNanos, counter, writerPid, writerState));
+        sequence = start + 1;
+        buffer.putLong(OFFSET_SEQUENCE, sequence);
+    }
+
+    // Take a consistent snapshot of the slot, returns one of the RESULT_ constants
+    synchronized int read() {
+        if (buffer == null) {
+            if (!file.exists() || file.length() < SIZE) {
+                return RESULT_MISSING;
+            }
+            try {
+                map();
+            } catch (IOException e) {
+                return RESULT_MISSING;
+            }
+        }
+        if (!isCompatible(buffer, fileLength)) {
+            return RESULT_INCOMPATIBLE;
+        }
+
+        for (int attempt = 0; attempt < READ_ATTEMPTS; attempt++) {
+            long before = buffer.getLong(OFFSET_SEQUENCE);
+            if ((before & 1) != 0) continue;
+            long readTimestamp = buffer.getLong(OFFSET_TIMESTAMP);
+            long readCounter = buffer.getLong(OFFSET_COUNTER);
+            int readPid = buffer.getInt(OFFSET_PID);
+            int readState = buffer.getInt(OFFSET_STATE);
+            long readChecksum = buffer.getLong(OFFSET_CHECKSUM);
+            long after = buffer.getLong(OFFSET_SEQUENCE);
+            if (before != after) continue;
+            if (readChecksum != checksum(before - 1, readTimestamp, readCounter, readPid, readState)) continue;
+
+            timestamp = readTimestamp;
+            beats = readCounter;
+            pid = readPid;
+            state = readState;
+            return RESULT_OK;
+        }
+        return RESULT_TORN;
+    }
+
+    // Whether the last read saw an active writer that beat within maxAgeNanos
+    synchronized boolean isFresh(long nowNanos, long maxAgeNanos) {
+        return state == STATE_ACTIVE && nowNanos - timestamp <= maxAgeNanos;
+    }
+
+    synchronized long getTimestamp() {
+        return timestamp;
+    }
+
+    synchronized long getBeats() {
+        return beats;
+    }
+
+    synchronized int getPid() {
+        return pid;
+    }
+
+    synchronized int getState() {
+        return state;
+    }
+
+    // Release the mapping
+    synchronized void close() {
+        buffer = null;
+    }
+
+    private void map() throws IOException {
+        if (writable) {
+            File dir = file.getParentFile();
+            if (dir != null && !dir.exists() && !dir.mkdirs()) {
+                throw new IOException("Cannot create " + dir);
+            }
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, writable ? "rw" : "r")) {
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer mapped = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, SIZE);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            fileLength = raf.length();
+            if (writable) {
+                // Continue the sequence of a previous writer so readers never see it go back
+                if (isCompatible(mapped, fileLength)) {
+                    sequence = mapped.getLong(OFFSET_SEQUENCE);
+                    counter = mapped.getLong(OFFSET_COUNTER);
+                }
+                mapped.putInt(OFFSET_MAGIC, MAGIC);
+                mapped.put(OFFSET_MAJOR, MAJOR_VERSION);
+                mapped.put(OFFSET_MINOR, MINOR_VERSION);
+                mapped.putShort(OFFSET_SIZE, (short) SIZE);
+            }
+            buffer = mapped;
+        }
+    }
+
+    // A slot of our major whose size field covers our fields and fits in the file. The minor is
+    // not checked, newer minors only append past SIZE.
+    private static boolean isCompatible(MappedByteBuffer slot, long fileLength) {
+        int size = slot.getShort(OFFSET_SIZE) & 0xFFFF;
+        return slot.getInt(OFFSET_MAGIC) == MAGIC && slot.get(OFFSET_MAJOR) == MAJOR_VERSION
+                && size >= SIZE && size <= fileLength;
+    }
+
+    private static long checksum(long sequence, long timestamp, long counter, int pid, int state) {
+        long h = sequence * 0x9E3779B97F4A7C15L;
+        h ^= Long.rotateLeft(timestamp, 21);
+        h ^= Long.rotateLeft(counter, 42);
+        h ^= ((long) pid << 32) | (state & 0xFFFFFFFFL);
+        return h * 0xC2B2AE3D27D4EB4FL;
+    }
+}
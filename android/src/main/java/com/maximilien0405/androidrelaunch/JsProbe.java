@@ -0,0 +1,89 @@
+package com.maximilien0405.androidrelaunch;
+
+// Ping/pong with the JavaScript event loop over the bridge, for freezes the main looper
+// watchdog cannot see: a runaway loop or a GC storm inside the WebView. The owner calls
+// tick() every interval; at most one probe is sent per tick, and none while the last one is
+// still within its timeout, so a healthy page costs one small event and one ack per interval.
+// A probe not acked within the timeout reports the page unresponsive once per outage, later
+// probes keep going out one per interval so a recovered or reloaded page re-arms the probe.
+public class JsProbe {
+
+    // Receives the probes to send and the outages, on the thread calling tick()
+    public interface Listener {
+
+        // Send one probe to JavaScript, to be acked with its id
+        void sendProbe(long id);
+
+        // No probe was acked for blockedMs
+        void onUnresponsive(long blockedMs);
+    }
+
+    private final Clock clock;
+    private final long timeout;
+    private final Listener listener;
+
+    private long lastId = 0;
+    // Clock time in nanoseconds the last probe was sent, and the oldest unacked one
+    private long sentAt = 0;
+    private long pendingSince = 0;
+    private boolean reported = false;
+
+    JsProbe(Clock clock, long timeoutMs, Listener listener) {
+        this.clock = clock;
+        this.timeout = timeoutMs * 1000000L;
+        this.listener = listener;
+    }
+
+    // Send the next probe unless the last one may still be acked in time
+    void tick() {
+        long id;
+        long blocked = -1;
+        synchronized (this) {
+            long now = clock.nanos();
+            if (pendingSince != 0) {
+                // During an outage a probe goes out every tick for a page that comes back
+                if (!reported && now - sentAt < timeout) return;
+                if (!reported) {
+                    reported = true;
+                    blocked = (now - pendingSince) / 1000000L;
+                }
+            } else {
+                pendingSince = now;
+            }
+            id = ++lastId;
+            sentAt = now;
+        }
+        if (blocked >= 0) {
+            RelaunchStats.increment(RelaunchStats.PROBE_TIMEOUTS);
+            listener.onUnresponsive(blocked);
+        }
+        RelaunchStats.increment(RelaunchStats.PROBES);
+        listener.sendProbe(id);
+    }
+
+    // JavaScript acked a probe. Only the last probe has a meaningful round trip, a late ack of
+    // an earlier one still shows the event loop runs again.
+    void ack(long id) {
+        long rtt;
+        boolean recovered;
+        synchronized (this) {
+            if (pendingSince == 0 || id <= 0 || id > lastId) return;
+            rtt = id == lastId ? clock.nanos() - sentAt : -1;
+            recovered = reported;
+            pendingSince = 0;
+            reported = false;
+        }
+        if (rtt >= 0) {
+            RelaunchStats.probeRtt.recordNanos(rtt);
+        }
+        if (recovered) {
+            RelaunchStats.increment(RelaunchStats.PROBE_RECOVERIES);
+        }
+    }
+
+    // Forget the probe in flight, when the page stops running JavaScript on purpose
+    synchronized void reset() {
+        pendingSince = 0;
+        reported = false;
+    }
+}
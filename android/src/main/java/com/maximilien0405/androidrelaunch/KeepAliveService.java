@@ -1,31 +1,51 @@
 package com.maximilien0405.androidrelaunch;
 
+import android.app.AlarmManager;
 import android.app.Notification;
-import android.app.NotificationChannel;
-import android.app.NotificationManager;
+import android.app.PendingIntent;
 import android.app.Service;
+import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.IBinder;
-import android.os.PowerManager;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.Nullable;
-import androidx.core.app.NotificationCompat;
 
 public class KeepAliveService extends Service {
 
     private static final String TAG = "KeepAliveService";
-    private static final String CHANNEL_ID = "AndroidRelaunchChannel";
-    private static final int HEARTBEAT_INTERVAL = 30000;
-    private static final int RELAUNCH_DELAY = 3000;
+    private static final String ACTION_HEARTBEAT = "com.maximilien0405.androidrelaunch.HEARTBEAT";
+    // Hard limit on how long a single check or relaunch may keep the CPU awake
+    private static final long WAKE_LOCK_TIMEOUT = 10000;
     
-    private Handler handler = new Handler();
-    private Runnable heartbeatRunnable;
-    private boolean isDestroyed = false;
+    // Policy of the running service, read by the plugin to report the current interval
+    private static volatile HeartbeatPolicy activePolicy;
+
+    // Heartbeat checks and delayed relaunches run here so their IPC never blocks the UI thread
+    private HandlerThread monitorThread;
+    private Handler handler;
+    private WatchdogConfig config = WatchdogConfig.defaults();
+    private HeartbeatMonitor heartbeat;
+    private HeartbeatSlot heartbeatSlot;
+    // Whether the last slot read succeeded, only touched by the heartbeat checks
+    private boolean slotRead = false;
+    // Last slot stamp seen stale by the checks, and the uptime it was first seen at
+    private long stallBeat;
+    private long stallBeatSeenAt;
+    private BroadcastReceiver packageReceiver;
+    private final Runnable heartbeatRunnable = this::checkAppAlive;
+    private BoundedWakeLock wakeLock;
+    private AlarmManager alarmManager;
+    private PendingIntent heartbeatAlarm;
+    private final Runnable targetCheck = this::checkTargets;
+    private TargetMonitor targetMonitor;
+    private volatile boolean isDestroyed = false;
     private boolean isServiceRunning = false;
 
     // Initialize service and start monitoring
@@ -41,8 +61,15 @@ public class KeepAliveService extends Service {
             }
             
             isServiceRunning = true;
+            monitorThread = new HandlerThread("AndroidRelaunch-Monitor", Process.THREAD_PRIORITY_BACKGROUND);
+            monitorThread.start();
+            handler = new Handler(monitorThread.getLooper());
+            wakeLock = new BoundedWakeLock(this, "AndroidRelaunch:heartbeat");
+            alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
+            heartbeat = new HeartbeatMonitor(Clock.ELAPSED_REALTIME, scheduler, monitorHost);
+            heartbeatSlot = HeartbeatSlot.openForRead(HeartbeatSlot.file(this));
+            packageReceiver = LaunchTarget.registerInvalidation(this);
             createNotificationChannel();
-            startHeartbeat();
             Log.d(TAG, "KeepAliveService created successfully");
         } catch (Exception e) {
             Log.e(TAG, "Failed to create service: " + e.getMessage(), e);
@@ -62,6 +89,22 @@ public class KeepAliveService extends Service {
             stopSelf();
             return START_NOT_STICKY;
         }
+        
+        // Alarm-driven check, keep the CPU awake until the monitor thread ran it. An alarm
+        // that restarted the process falls through and applies the persisted config.
+        if (intent != null && ACTION_HEARTBEAT.equals(intent.getAction()) && handler != null
+                && heartbeat.getPolicy() != null) {
+            wakeLock.acquire(WAKE_LOCK_TIMEOUT);
+            handler.post(heartbeatRunnable);
+            return START_STICKY;
+        }
+        
+        // Sticky restarts deliver a null intent to a fresh process, the persisted snapshot
+        // still holds the settings of the last enable(). A start at boot waits out the boot delay.
+        if (handler != null) {
+            long delay = intent != null ? intent.getLongExtra(AndroidRelaunchPlugin.EXTRA_START_DELAY, 0) : 0;
+            handler.postDelayed(() -> applyConfig(ConfigStore.get(this).config), delay);
+        }
         return START_STICKY;
     }
 
@@ -71,22 +114,30 @@ public class KeepAliveService extends Service {
         super.onDestroy();
         isDestroyed = true;
         isServiceRunning = false;
+        activePolicy = null;
+        if (packageReceiver != null) {
+            unregisterReceiver(packageReceiver);
+            packageReceiver = null;
+        }
         
-        // Clean up handler
-        if (handler != null && heartbeatRunnable != null) {
-            handler.removeCallbacks(heartbeatRunnable);
+        if (handler == null) {
+            return;
         }
+        
+        // Clean up handler
+        handler.removeCallbacksAndMessages(null);
 
-
+        // Relaunch the app after delay if killed, then let the monitor thread finish
         if (AndroidRelaunchPlugin.isEnabled()) {
-            // Relaunch the app after delay if killed
-            new Handler().postDelayed(() -> {
-                if (!isDestroyed && AndroidRelaunchPlugin.isEnabled()) {
-                    Log.d(TAG, "Attempting to relaunch app after service destruction");
-                    relaunchApp();
-                }
-            }, RELAUNCH_DELAY);
+            wakeLock.acquire(config.relaunchDelay + WAKE_LOCK_TIMEOUT);
         }
+        final int cookie = (int) SystemClock.elapsedRealtime();
+        RelaunchTrace.beginAsyncSection(RelaunchTrace.RELAUNCH_DELAY, cookie);
+        heartbeat.onDestroyed(config.relaunchDelay, () -> {
+            RelaunchTrace.endAsyncSection(RelaunchTrace.RELAUNCH_DELAY, cookie);
+            wakeLock.release();
+            monitorThread.quitSafely();
+        });
     }
 
     // Service binding not supported
@@ -103,27 +154,8 @@ public class KeepAliveService extends Service {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
                 createNotificationChannel();
             }
-            
-            // Create notification compatible with API 23+
-            NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
-                    .setContentTitle("App is active")
-                    .setContentText("Monitoring app to keep it alive")
-                    .setSmallIcon(android.R.drawable.ic_media_play)
-                    .setPriority(NotificationCompat.PRIORITY_LOW)
-                    .setOngoing(true)
-                    .setAutoCancel(false);
-
-            // Set category for API 24+
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-                builder.setCategory(NotificationCompat.CATEGORY_SERVICE);
-            }
-
-            // For API 26+, set importance
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                builder.setChannelId(CHANNEL_ID);
-            }
 
-            Notification notification = builder.build();
+            Notification notification = RelaunchNotification.build(this);
             startForeground(1, notification);
             Log.d(TAG, "Foreground service started successfully");
         } catch (Exception e) {
@@ -132,139 +164,198 @@ public class KeepAliveService extends Service {
         }
     }
 
-    // Start heartbeat monitoring to check app process
-    private void startHeartbeat() {
+    // Switch to new settings and reschedule the heartbeat with the new policy
+    private void applyConfig(WatchdogConfig newConfig) {
+        config = newConfig;
+        LaunchTarget.setComponent(newConfig.launchComponent);
+        LaunchTarget.warmUp(this);
         try {
-            heartbeatRunnable = this::checkAppAlive;
-            handler.postDelayed(heartbeatRunnable, HEARTBEAT_INTERVAL);
+            HeartbeatPolicy policy = newConfig.createHeartbeatPolicy();
+            heartbeat.start(policy);
+            activePolicy = policy;
             Log.d(TAG, "Heartbeat monitoring started");
         } catch (Exception e) {
             Log.e(TAG, "Failed to start heartbeat: " + e.getMessage(), e);
         }
-    }
-
-    // Create notification channel for Android 8.0+
-    private void createNotificationChannel() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            try {
-                NotificationManager manager = getSystemService(NotificationManager.class);
-                if (manager == null) {
-                    Log.e(TAG, "NotificationManager is null");
-                    return;
-                }
-                
-                // Check if channel already exists
-                if (manager.getNotificationChannel(CHANNEL_ID) != null) {
-                    Log.d(TAG, "Notification channel already exists");
-                    return;
-                }
-                
-                NotificationChannel serviceChannel = new NotificationChannel(
-                        CHANNEL_ID,
-                        "Android Relaunch Service",
-                        NotificationManager.IMPORTANCE_LOW
-                );
-                serviceChannel.setDescription("Keeps the app alive and monitors for crashes");
-                
-                // Set sound to null for API 26+
-                serviceChannel.setSound(null, null);
-                serviceChannel.setShowBadge(false);
-                serviceChannel.enableLights(false);
-                serviceChannel.enableVibration(false);
-                
-                manager.createNotificationChannel(serviceChannel);
-                Log.d(TAG, "Notification channel created successfully");
-            } catch (Exception e) {
-                Log.e(TAG, "Failed to create notification channel: " + e.getMessage(), e);
-                throw e; // Re-throw to handle in calling method
-            }
+        
+        handler.removeCallbacks(targetCheck);
+        targetMonitor = new TargetMonitor(new AndroidProcessBackend(getApplicationContext()), newConfig.targets,
+                SystemClock.elapsedRealtime());
+        if (!targetMonitor.isEmpty()) {
+            handler.postDelayed(targetCheck, targetMonitor.check(SystemClock.elapsedRealtime(), this::relaunchTarget));
         }
     }
 
-    // Check if app process is running and schedule next heartbeat
-    private void checkAppAlive() {
+    // Resolve every due target against one process list snapshot
+    private void checkTargets() {
         try {
-            if (isDestroyed) return;
-            
-            if (!AndroidRelaunchPlugin.isEnabled()) {
-                Log.d(TAG, "Plugin disabled, stopping heartbeat");
+            if (isDestroyed || !AndroidRelaunchPlugin.isEnabled()) {
                 return;
             }
-            
-            if (!AppProcessChecker.isAppRunning(getApplicationContext())) {
-                relaunchApp();
-            }
-            
-            if (!isDestroyed && handler != null && heartbeatRunnable != null && AndroidRelaunchPlugin.isEnabled()) {
-                handler.postDelayed(heartbeatRunnable, HEARTBEAT_INTERVAL);
-            }
+            long delay = targetMonitor.check(SystemClock.elapsedRealtime(), this::relaunchTarget);
+            handler.removeCallbacks(targetCheck);
+            handler.postDelayed(targetCheck, delay);
         } catch (Exception e) {
-            Log.e(TAG, "Error in heartbeat check: " + e.getMessage(), e);
+            Log.e(TAG, "Error in target check: " + e.getMessage(), e);
         }
     }
 
-    // Automatically relaunch the app if it was killed
-    private void relaunchApp() {
-        try {
-            if (!AndroidRelaunchPlugin.isEnabled()) {
-                Log.d(TAG, "Plugin disabled, skipping relaunch");
+    // Relaunch a monitored target found dead
+    private void relaunchTarget(int index, MonitorTarget target, long downMs) {
+        Log.d(TAG, "Target " + target.processName + " is not running, relaunching");
+        Relauncher.relaunchTarget(this, index, target, downMs, SystemClock.elapsedRealtimeNanos());
+    }
+
+    // Create notification channel for Android 8.0+
+    private void createNotificationChannel() {
+        RelaunchNotification.createChannel(this);
+    }
+
+    // Heartbeat work runs on the monitor thread, checks go through AlarmManager in alarm mode
+    // so they also fire in Doze
+    private final HeartbeatMonitor.Scheduler scheduler = new HeartbeatMonitor.Scheduler() {
+        @Override
+        public void scheduleCheck(long delayMs) {
+            if (!WatchdogConfig.SCHEDULING_ALARM.equals(config.scheduling) || alarmManager == null) {
+                handler.postDelayed(heartbeatRunnable, delayMs);
                 return;
             }
             
-            Intent restartIntent = getMainActivityIntent();
-            if (restartIntent != null) {
-                restartIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
-                
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                    restartIntent.addFlags(Intent.FLAG_ACTIVITY_NO_ANIMATION);
-                }
-                
-                startActivity(restartIntent);
-                
-                notifyRelaunch();
+            long dueAt = SystemClock.elapsedRealtime() + delayMs;
+            // Exact alarms need a user-granted permission from Android 12, fall back to inexact ones
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.S || alarmManager.canScheduleExactAlarms()) {
+                alarmManager.setExactAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, dueAt, heartbeatAlarm());
+            } else {
+                alarmManager.setAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, dueAt, heartbeatAlarm());
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to relaunch app: " + e.getMessage(), e);
         }
-    }
 
-    // Get intent to launch the main activity
-    private Intent getMainActivityIntent() {
-        try {
-            String mainActivityClass = getMainActivityClassName();
-            if (mainActivityClass != null) {
-                return new Intent(this, Class.forName(mainActivityClass));
+        @Override
+        public void cancelCheck() {
+            handler.removeCallbacks(heartbeatRunnable);
+            cancelHeartbeatAlarm();
+        }
+
+        @Override
+        public void postDelayed(Runnable task, long delayMs) {
+            handler.postDelayed(task, delayMs);
+        }
+    };
+
+    private final HeartbeatMonitor.Host monitorHost = new HeartbeatMonitor.Host() {
+        @Override
+        public boolean isEnabled() {
+            return AndroidRelaunchPlugin.isEnabled();
+        }
+
+        @Override
+        public boolean isSlotFresh() {
+            return KeepAliveService.this.isSlotFresh();
+        }
+
+        @Override
+        public boolean isProcessAlive() {
+            return KeepAliveService.this.isProcessAlive();
+        }
+
+        @Override
+        public boolean relaunch(byte path, long latencyMs, long detectedAt) {
+            Log.d(TAG, "Relaunching app, detected by " + RelaunchJournal.pathName(path));
+            return relaunchApp(path, latencyMs, detectedAt);
+        }
+
+        // Alarms wake the device only for the heartbeat, run due target checks along with it
+        @Override
+        public void onChecked() {
+            if (WatchdogConfig.SCHEDULING_ALARM.equals(config.scheduling) && targetMonitor != null
+                    && !targetMonitor.isEmpty()) {
+                checkTargets();
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to get main activity intent: " + e.getMessage(), e);
         }
-        return null;
+    };
+
+    // Also cancels an alarm left by a previous process, the PendingIntent matches it
+    private void cancelHeartbeatAlarm() {
+        if (alarmManager != null) {
+            alarmManager.cancel(heartbeatAlarm());
+        }
     }
 
-    // Get the main activity class name from package manager
-    private String getMainActivityClassName() {
+    private PendingIntent heartbeatAlarm() {
+        if (heartbeatAlarm == null) {
+            Intent intent = new Intent(this, KeepAliveService.class).setAction(ACTION_HEARTBEAT);
+            heartbeatAlarm = PendingIntent.getService(this, 0, intent,
+                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        }
+        return heartbeatAlarm;
+    }
+
+    // Run one heartbeat check while holding the CPU awake
+    private void checkAppAlive() {
+        wakeLock.acquire(WAKE_LOCK_TIMEOUT);
+        RelaunchTrace.beginSection(RelaunchTrace.HEARTBEAT_CHECK);
         try {
-            PackageManager pm = getPackageManager();
-            Intent intent = pm.getLaunchIntentForPackage(getPackageName());
-            if (intent != null && intent.getComponent() != null) {
-                return intent.getComponent().getClassName();
-            }
+            heartbeat.check();
         } catch (Exception e) {
-            Log.e(TAG, "Failed to get main activity class name: " + e.getMessage(), e);
+            Log.e(TAG, "Error in heartbeat check: " + e.getMessage(), e);
+        } finally {
+            RelaunchTrace.endSection();
+            wakeLock.release();
         }
-        
-        return getPackageName() + ".MainActivity";
     }
 
-    // Notify the plugin about app relaunch events
-    private void notifyRelaunch() {
+    // Read the heartbeat slot, the app beat it within a few beat periods
+    private boolean isSlotFresh() {
+        slotRead = heartbeatSlot != null && heartbeatSlot.read() == HeartbeatSlot.RESULT_OK;
+        return slotRead && heartbeatSlot.isFresh(SystemClock.elapsedRealtimeNanos(),
+                3 * AndroidRelaunchPlugin.SLOT_INTERVAL * 1000000L);
+    }
+
+    // Ask ActivityManager, once the slot read by isSlotFresh() said nothing
+    private boolean isProcessAlive() {
+        boolean alive = AppProcessChecker.isAppRunning(getApplicationContext());
+        if (alive) {
+            checkStall();
+        }
+        return alive;
+    }
+
+    // The app process is alive but its slot is stale: once the same stamp has been seen for
+    // stallTimeout, kill this process, which is the app, and relaunch it like a hang. As in
+    // WatchdogService the stamp is compared across checks in uptime, deep sleep is no stall.
+    private void checkStall() {
+        if (!slotRead || config.stallTimeout <= 0 || heartbeatSlot.getState() != HeartbeatSlot.STATE_ACTIVE
+                || heartbeatSlot.getPid() != Process.myPid()) {
+            stallBeat = 0;
+            return;
+        }
+        long beat = heartbeatSlot.getTimestamp();
+        long now = SystemClock.uptimeMillis();
+        if (beat != stallBeat) {
+            stallBeat = beat;
+            stallBeatSeenAt = now;
+        } else if (now - stallBeatSeenAt >= config.stallTimeout) {
+            Log.w(TAG, "App main thread stalled for more than " + config.stallTimeout + " ms, relaunching");
+            stallBeat = 0;
+            RelaunchStats.increment(RelaunchStats.STALL_KILLS);
+            Relauncher.killAndRelaunch(this, RelaunchJournal.PATH_HANG, now - stallBeatSeenAt, true,
+                    config.relaunchDelay, SystemClock.elapsedRealtimeNanos());
+        }
+    }
+
+    // Automatically relaunch the app if it was killed
+    private boolean relaunchApp(byte path, long latencyMs, long detectedAt) {
         try {
-            AndroidRelaunchPlugin plugin = AndroidRelaunchPlugin.getPluginInstance();
-            if (plugin != null) {
-                plugin.notifyRelaunch();
-            }
+            // The relauncher notifies the plugin once the relaunch is journaled
+            return Relauncher.relaunch(this, path, latencyMs, detectedAt);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to notify relaunch: " + e.getMessage(), e);
+            Log.e(TAG, "Failed to relaunch app: " + e.getMessage(), e);
         }
+        return false;
+    }
+
+    // Heartbeat policy of the running service, or null when it is not running
+    static HeartbeatPolicy getActivePolicy() {
+        return activePolicy;
     }
 }
\ No newline at end of file
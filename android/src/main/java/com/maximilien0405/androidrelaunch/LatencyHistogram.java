@@ -0,0 +1,78 @@
+package com.maximilien0405.androidrelaunch;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Fixed-memory latency histogram with power-of-two microsecond buckets.
+// Recording is lock-free and allocation-free; bucket i holds values below 2^i microseconds.
+public class LatencyHistogram {
+
+    static final int BUCKETS = 32;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    // Record one value in nanoseconds
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1000L);
+    }
+
+    // Record one value in microseconds
+    public void recordMicros(long micros) {
+        if (micros < 0) micros = 0;
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        sum.addAndGet(micros);
+        long current;
+        while (micros > (current = max.get()) && !max.compareAndSet(current, micros)) {
+            // Retry until max holds the largest value seen
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSumMicros() {
+        return sum.get();
+    }
+
+    public long getMaxMicros() {
+        return max.get();
+    }
+
+    public long getBucket(int index) {
+        return buckets.get(index);
+    }
+
+    // Upper bound in microseconds of the bucket holding the given quantile, 0 when empty
+    public long getPercentileMicros(double quantile) {
+        long total = count.get();
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(i == 0 ? 0 : 1L << i, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    // Add the values of another histogram, used to restore persisted snapshots
+    void add(long[] otherBuckets, long otherCount, long otherSum, long otherMax) {
+        for (int i = 0; i < BUCKETS && i < otherBuckets.length; i++) {
+            buckets.addAndGet(i, otherBuckets[i]);
+        }
+        count.addAndGet(otherCount);
+        sum.addAndGet(otherSum);
+        long current;
+        while (otherMax > (current = max.get()) && !max.compareAndSet(current, otherMax)) {
+            // Retry until max holds the largest value seen
+        }
+    }
+}
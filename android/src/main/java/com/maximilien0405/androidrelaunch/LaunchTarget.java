@@ -0,0 +1,153 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.content.BroadcastReceiver;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.util.Log;
+
+// Launch component of the app resolved once and kept ready, so a relaunch is a single
+// startActivity with no PackageManager lookup on the critical path. The resolution itself
+// only sees a Resolver, PackageManager in production.
+public class LaunchTarget {
+
+    private static final String TAG = "LaunchTarget";
+    private static final int FLAGS = Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP
+            | Intent.FLAG_ACTIVITY_NO_ANIMATION;
+
+    // Flattened component to launch, "package/class"
+    private static volatile String cachedComponent;
+    private static volatile String componentOverride;
+
+    // Source of the launcher activity, implemented on top of PackageManager in production
+    public interface Resolver {
+
+        // Flattened launcher component of packageName, null when it has none or the lookup failed
+        String getLauncherComponent(String packageName);
+    }
+
+    // Launch intent ready to pass to startActivity, resolved on first use.
+    // A new intent is returned because startActivity prepares the intent in place.
+    static Intent get(Context context) {
+        String component = cachedComponent;
+        if (component == null) {
+            component = resolve(new PackageManagerResolver(context.getPackageManager()), context.getPackageName());
+        }
+        Intent intent = new Intent();
+        intent.setComponent(ComponentName.unflattenFromString(component));
+        intent.addFlags(FLAGS);
+        return intent;
+    }
+
+    // Flattened component to launch, resolved through resolver on first use
+    static String resolve(Resolver resolver, String packageName) {
+        String component = cachedComponent;
+        if (component == null) {
+            component = resolveComponent(resolver, packageName, componentOverride);
+            cachedComponent = component;
+        }
+        return component;
+    }
+
+    // Resolve ahead of time, called when monitoring starts
+    static void warmUp(Context context) {
+        get(context);
+    }
+
+    // Use a fixed component such as "com.example.app/.MainActivity", null to use the launcher activity
+    static void setComponent(String flattenedComponent) {
+        String previous = componentOverride;
+        if (previous == null ? flattenedComponent == null : previous.equals(flattenedComponent)) {
+            return;
+        }
+        if (flattenedComponent != null && expand(flattenedComponent) == null) {
+            Log.w(TAG, "Invalid launch component " + flattenedComponent + ", using the launcher activity");
+        }
+        componentOverride = flattenedComponent;
+        invalidate();
+    }
+
+    // Forget the resolved target, the next relaunch resolves it again
+    static void invalidate() {
+        cachedComponent = null;
+    }
+
+    // Invalidate the app and monitored targets whenever a package is replaced or its components change
+    static BroadcastReceiver registerInvalidation(Context context) {
+        BroadcastReceiver receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                Log.d(TAG, "Package changed, launch target will be resolved again");
+                invalidate();
+                for (MonitorTarget target : ConfigStore.current().config.targets) {
+                    target.invalidate();
+                }
+            }
+        };
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addDataScheme("package");
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            context.registerReceiver(receiver, filter, Context.RECEIVER_NOT_EXPORTED);
+        } else {
+            context.registerReceiver(receiver, filter);
+        }
+        return receiver;
+    }
+
+    // Configured component first, then the launcher activity, then the conventional MainActivity
+    private static String resolveComponent(Resolver resolver, String packageName, String override) {
+        if (override != null) {
+            String component = expand(override);
+            if (component != null) {
+                return component;
+            }
+        }
+        String launcher = resolver.getLauncherComponent(packageName);
+        if (launcher != null) {
+            return launcher;
+        }
+        return packageName + "/" + packageName + ".MainActivity";
+    }
+
+    // "package/class" with a class starting with a dot expanded like ComponentName.unflattenFromString,
+    // null when it is not a component
+    private static String expand(String flattened) {
+        int slash = flattened.indexOf('/');
+        if (slash <= 0 || slash == flattened.length() - 1) {
+            return null;
+        }
+        if (flattened.charAt(slash + 1) != '.') {
+            return flattened;
+        }
+        String packageName = flattened.substring(0, slash);
+        return packageName + "/" + packageName + flattened.substring(slash + 1);
+    }
+
+    // Resolver reading the launcher activity from PackageManager
+    private static class PackageManagerResolver implements Resolver {
+
+        private final PackageManager pm;
+
+        PackageManagerResolver(PackageManager pm) {
+            this.pm = pm;
+        }
+
+        @Override
+        public String getLauncherComponent(String packageName) {
+            try {
+                Intent intent = pm.getLaunchIntentForPackage(packageName);
+                if (intent != null && intent.getComponent() != null) {
+                    return intent.getComponent().flattenToString();
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to get main activity class name: " + e.getMessage(), e);
+            }
+            return null;
+        }
+    }
+}
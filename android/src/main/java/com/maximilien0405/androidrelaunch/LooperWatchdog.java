@@ -0,0 +1,117 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+// Detects a blocked main looper from a background thread. The main thread only stamps a
+// volatile field from the heartbeat slot beat it already runs, and the checker thread wakes
+// a few times per threshold to compare, so a healthy looper pays one volatile write per beat.
+// Times are SystemClock.uptimeMillis(), like Handler delays, so deep sleep is not a hang.
+// A stale tick is only a hang once a probe posted to the main looper also missed its deadline,
+// a checker thread that ran first after the process was thawed does not report a healthy app.
+public class LooperWatchdog {
+
+    private static final String TAG = "LooperWatchdog";
+    private static final long MIN_CHECK_INTERVAL = 250;
+
+    // Receives one report per hang, on the checker thread
+    public interface Listener {
+
+        // The main looper has not run a tick for blockedMs, stack is the main thread stack right now
+        void onHang(long blockedMs, StackTraceElement[] stack);
+    }
+
+    private final long tickInterval;
+    private final long threshold;
+    private final long checkInterval;
+    private final Listener listener;
+    private final Runnable check = this::check;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable probe = () -> probePending = false;
+
+    private HandlerThread thread;
+    private Handler handler;
+    private volatile long lastTickAt;
+    private long expectedTickAt;
+    private boolean reported = false;
+    private volatile boolean probePending = false;
+    private long probePostedAt;
+
+    // tickInterval is the period at which tick() is called, thresholdMs the tolerated delay on top of it
+    LooperWatchdog(long tickInterval, long thresholdMs, Listener listener) {
+        this.tickInterval = tickInterval;
+        this.threshold = thresholdMs;
+        this.checkInterval = Math.max(thresholdMs / 4, MIN_CHECK_INTERVAL);
+        this.listener = listener;
+    }
+
+    // Start the checker thread, ticks are expected from now on
+    synchronized void start() {
+        if (thread != null) return;
+        lastTickAt = SystemClock.uptimeMillis();
+        thread = new HandlerThread("AndroidRelaunch-Looper", Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        handler.postDelayed(check, checkInterval);
+    }
+
+    synchronized void stop() {
+        if (thread == null) return;
+        handler.removeCallbacksAndMessages(null);
+        mainHandler.removeCallbacks(probe);
+        probePending = false;
+        probePostedAt = 0;
+        thread.quitSafely();
+        thread = null;
+        handler = null;
+    }
+
+    // Called on the main thread at every slot beat, records how late the beat ran
+    void tick() {
+        long now = SystemClock.uptimeMillis();
+        if (expectedTickAt != 0) {
+            RelaunchStats.looperLag.recordMicros((now - expectedTickAt) * 1000L);
+        }
+        expectedTickAt = now + tickInterval;
+        lastTickAt = now;
+    }
+
+    private void check() {
+        try {
+            long now = SystemClock.uptimeMillis();
+            long blocked = now - lastTickAt - tickInterval;
+            if (blocked > threshold) {
+                // Report a hang once, not at every check while it lasts
+                if (!reported) {
+                    if (probePostedAt == 0) {
+                        probePending = true;
+                        probePostedAt = now;
+                        mainHandler.post(probe);
+                    } else if (!probePending) {
+                        // The looper ran the probe, it is the beat that is missing, probe again
+                        probePostedAt = 0;
+                    } else if (now - probePostedAt >= checkInterval) {
+                        reported = true;
+                        probePostedAt = 0;
+                        RelaunchStats.increment(RelaunchStats.HANGS);
+                        listener.onHang(blocked, Looper.getMainLooper().getThread().getStackTrace());
+                    }
+                }
+            } else {
+                reported = false;
+                probePostedAt = 0;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error in looper check: " + e.getMessage(), e);
+        }
+        synchronized (this) {
+            if (handler != null) {
+                handler.postDelayed(check, checkInterval);
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.getcapacitor.JSObject;
+
+// Grades how close the app is to a low-memory kill from the trim callbacks of the system and
+// from periodic ActivityManager.getMemoryInfo samples, and reports every change of grade so
+// the app can shed caches and heavy views before it is killed instead of being relaunched.
+// Trim levels are only sent on change, so a trim grade holds for TRIM_HOLD before the
+// memory samples alone may lower it again.
+public class MemoryPressure implements ComponentCallbacks2 {
+
+    private static final String TAG = "MemoryPressure";
+
+    static final int LEVEL_NORMAL = 0;
+    static final int LEVEL_MODERATE = 1;
+    static final int LEVEL_HIGH = 2;
+    static final int LEVEL_CRITICAL = 3;
+
+    private static final String[] LEVEL_NAMES = { "normal", "moderate", "high", "critical" };
+
+    private static final long TRIM_HOLD = 30000;
+
+    // Receives every change of grade
+    public interface Listener {
+        void onMemoryPressure(JSObject event);
+    }
+
+    private static volatile int currentLevel = LEVEL_NORMAL;
+
+    private final ActivityManager am;
+    private final ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
+    private final Listener listener;
+
+    private int trimLevel = LEVEL_NORMAL;
+    private int rawTrimLevel = 0;
+    private long trimAt = 0;
+    private int sampleLevel = LEVEL_NORMAL;
+
+    MemoryPressure(Context context, Listener listener) {
+        this.am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        this.listener = listener;
+    }
+
+    // Grade currently reported, for getStats()
+    static String currentLevelName() {
+        return LEVEL_NAMES[currentLevel];
+    }
+
+    // Called on the main thread
+    @Override
+    public void onTrimMemory(int level) {
+        int graded = gradeTrim(level);
+        // UI_HIDDEN only says the app went to the background
+        if (graded < 0) return;
+        synchronized (this) {
+            rawTrimLevel = level;
+            trimLevel = graded;
+            trimAt = SystemClock.elapsedRealtime();
+        }
+        update("trim");
+    }
+
+    @Override
+    public void onLowMemory() {
+        synchronized (this) {
+            rawTrimLevel = TRIM_MEMORY_COMPLETE;
+            trimLevel = LEVEL_CRITICAL;
+            trimAt = SystemClock.elapsedRealtime();
+        }
+        update("lowMemory");
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    // Sample system memory, a binder call, so the caller keeps it off the main thread
+    void sample() {
+        if (am == null) return;
+        try {
+            synchronized (this) {
+                am.getMemoryInfo(memoryInfo);
+                sampleLevel = gradeMemoryInfo(memoryInfo);
+            }
+            update("memoryInfo");
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to sample memory info: " + e.getMessage(), e);
+        }
+    }
+
+    private void update(String source) {
+        JSObject event;
+        synchronized (this) {
+            if (trimLevel > LEVEL_NORMAL && SystemClock.elapsedRealtime() - trimAt > TRIM_HOLD) {
+                trimLevel = LEVEL_NORMAL;
+            }
+            int level = Math.max(trimLevel, sampleLevel);
+            int previous = currentLevel;
+            if (level == previous) return;
+            currentLevel = level;
+            if (level > previous) {
+                RelaunchStats.increment(RelaunchStats.PRESSURE_MODERATE + level - 1);
+            }
+
+            event = new JSObject();
+            event.put("timestamp", System.currentTimeMillis());
+            event.put("level", LEVEL_NAMES[level]);
+            event.put("previousLevel", LEVEL_NAMES[previous]);
+            event.put("source", source);
+            event.put("trimLevel", rawTrimLevel);
+            event.put("availMemKb", memoryInfo.availMem / 1024);
+            event.put("thresholdKb", memoryInfo.threshold / 1024);
+            event.put("lowMemory", memoryInfo.lowMemory);
+        }
+        Log.d(TAG, "Memory pressure " + event.getString("previousLevel") + " -> " + event.getString("level"));
+        listener.onMemoryPressure(event);
+    }
+
+    // Grade of a trim level, -1 for levels that are not about memory
+    static int gradeTrim(int level) {
+        if (level >= TRIM_MEMORY_COMPLETE) return LEVEL_CRITICAL;
+        if (level >= TRIM_MEMORY_MODERATE) return LEVEL_HIGH;
+        if (level >= TRIM_MEMORY_BACKGROUND) return LEVEL_MODERATE;
+        if (level >= TRIM_MEMORY_UI_HIDDEN) return -1;
+        if (level >= TRIM_MEMORY_RUNNING_CRITICAL) return LEVEL_CRITICAL;
+        if (level >= TRIM_MEMORY_RUNNING_LOW) return LEVEL_HIGH;
+        if (level >= TRIM_MEMORY_RUNNING_MODERATE) return LEVEL_MODERATE;
+        return LEVEL_NORMAL;
+    }
+
+    // The system starts killing once available memory drops under threshold
+    static int gradeMemoryInfo(ActivityManager.MemoryInfo info) {
+        if (info.lowMemory) return LEVEL_CRITICAL;
+        if (info.availMem < info.threshold * 3 / 2) return LEVEL_HIGH;
+        if (info.availMem < info.threshold * 2) return LEVEL_MODERATE;
+        return LEVEL_NORMAL;
+    }
+}
@@ -0,0 +1,194 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.content.Context;
+import android.os.Debug;
+import android.util.Log;
+
+import com.getcapacitor.JSObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.Arrays;
+
+// Resident memory cost of each monitoring mode, sampled by the processes involved and shared
+// by all processes of the app through a file lock, like the exit reason aggregate. The plugin
+// samples the app process with the bridge loaded, tagged with the mode active at the time; the
+// :watchdog and :job processes sample themselves. In job mode the app process hosts nothing of
+// the monitoring, its app PSS is the baseline: a mode costs its app PSS over that baseline plus
+// the PSS of its own process while that stays resident, which the :job process does not.
+//
+// File layout, little endian:
+//   0  int   magic
+//   4  short version
+//   6  short records
+//   8  record[records], app process then own process for each mode:
+//        long samples, long pss sum, long pss max (KB),
+//        long first sample time, long last sample time
+public class ModeFootprint {
+
+    private static final String TAG = "ModeFootprint";
+
+    static final int FOREGROUND = 0;
+    static final int WATCHDOG = 1;
+    static final int JOB = 2;
+
+    // Which process a sample comes from
+    static final int APP_PROCESS = 0;
+    static final int OWN_PROCESS = 1;
+
+    private static final String[] MODE_NAMES = {
+        AndroidRelaunchPlugin.MODE_FOREGROUND, AndroidRelaunchPlugin.MODE_WATCHDOG, AndroidRelaunchPlugin.MODE_JOB
+    };
+    private static final int MODES = MODE_NAMES.length;
+    private static final int RECORDS = MODES * 2;
+
+    // Between samples, Debug.getMemoryInfo walks the whole address space
+    static final long SAMPLE_INTERVAL = 300000;
+
+    private static final int MAGIC = 0x4152464d;
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_SIZE = 40;
+    private static final int FILE_SIZE = HEADER_SIZE + RECORDS * RECORD_SIZE;
+
+    private static ModeFootprint instance;
+
+    private final File file;
+    private final ByteBuffer buffer = ByteBuffer.allocate(FILE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final Debug.MemoryInfo memoryInfo = new Debug.MemoryInfo();
+
+    ModeFootprint(File file) {
+        this.file = file;
+    }
+
+    // Aggregate in the app's files dir, shared by all callers in this process
+    static synchronized ModeFootprint get(Context context) {
+        if (instance == null) {
+            instance = new ModeFootprint(new File(new File(context.getFilesDir(), "androidrelaunch"), "mode-footprint.bin"));
+        }
+        return instance;
+    }
+
+    // Slot of a WatchdogConfig mode
+    static int slotOf(String mode) {
+        if (AndroidRelaunchPlugin.MODE_WATCHDOG.equals(mode)) return WATCHDOG;
+        if (AndroidRelaunchPlugin.MODE_JOB.equals(mode)) return JOB;
+        return FOREGROUND;
+    }
+
+    // Sample the PSS of this process, APP_PROCESS or OWN_PROCESS of a mode. Slow, keep it off
+    // the main thread of the app.
+    synchronized void sample(int process, int mode) {
+        try {
+            Debug.getMemoryInfo(memoryInfo);
+            record(mode * 2 + process, memoryInfo.getTotalPss(), System.currentTimeMillis());
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to sample footprint: " + e.getMessage(), e);
+        }
+    }
+
+    private void record(int record, long pssKb, long now) throws IOException {
+        try (RandomAccessFile raf = open()) {
+            FileChannel channel = raf.getChannel();
+            FileLock lock = channel.lock();
+            try {
+                load(channel);
+                int at = HEADER_SIZE + record * RECORD_SIZE;
+                buffer.putLong(at, buffer.getLong(at) + 1);
+                buffer.putLong(at + 8, buffer.getLong(at + 8) + pssKb);
+                buffer.putLong(at + 16, Math.max(buffer.getLong(at + 16), pssKb));
+                if (buffer.getLong(at + 24) == 0) {
+                    buffer.putLong(at + 24, now);
+                }
+                buffer.putLong(at + 32, now);
+                save(channel);
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    // Samples of every mode and its resident cost over the job mode, once both were sampled
+    synchronized JSObject toJSObject() throws IOException {
+        try (RandomAccessFile raf = open()) {
+            FileChannel channel = raf.getChannel();
+            FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+            try {
+                load(channel);
+            } finally {
+                lock.release();
+            }
+        }
+
+        long baseline = averagePss(JOB * 2 + APP_PROCESS);
+        JSObject result = new JSObject();
+        for (int mode = 0; mode < MODES; mode++) {
+            JSObject entry = new JSObject();
+            JSObject app = samples(mode * 2 + APP_PROCESS);
+            JSObject own = samples(mode * 2 + OWN_PROCESS);
+            if (app != null) entry.put("app", app);
+            if (own != null) entry.put("process", own);
+            if (app == null && own == null) continue;
+
+            long appPss = averagePss(mode * 2 + APP_PROCESS);
+            // The :watchdog process stays up next to the app, the :job process does not
+            long ownPss = mode == WATCHDOG ? averagePss(mode * 2 + OWN_PROCESS) : 0;
+            if (mode != JOB && appPss >= 0 && baseline >= 0 && ownPss >= 0) {
+                entry.put("differenceKb", appPss - baseline + ownPss);
+            }
+            result.put(MODE_NAMES[mode], entry);
+        }
+        return result;
+    }
+
+    // Average PSS of a record, -1 without samples
+    private long averagePss(int record) {
+        int at = HEADER_SIZE + record * RECORD_SIZE;
+        long samples = buffer.getLong(at);
+        return samples > 0 ? buffer.getLong(at + 8) / samples : -1;
+    }
+
+    private JSObject samples(int record) {
+        int at = HEADER_SIZE + record * RECORD_SIZE;
+        long samples = buffer.getLong(at);
+        if (samples == 0) return null;
+        JSObject entry = new JSObject();
+        entry.put("samples", samples);
+        entry.put("avgPssKb", buffer.getLong(at + 8) / samples);
+        entry.put("maxPssKb", buffer.getLong(at + 16));
+        entry.put("firstSampleAt", buffer.getLong(at + 24));
+        entry.put("lastSampleAt", buffer.getLong(at + 32));
+        return entry;
+    }
+
+    private RandomAccessFile open() throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        return new RandomAccessFile(file, "rw");
+    }
+
+    private void load(FileChannel channel) throws IOException {
+        buffer.clear();
+        int read = channel.read(buffer, 0);
+        if (read < FILE_SIZE || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION || buffer.getShort(6) != RECORDS) {
+            // Missing or foreign file, start measuring from scratch
+            Arrays.fill(buffer.array(), (byte) 0);
+        }
+    }
+
+    private void save(FileChannel channel) throws IOException {
+        buffer.putInt(0, MAGIC);
+        buffer.putShort(4, VERSION);
+        buffer.putShort(6, (short) RECORDS);
+        buffer.clear();
+        channel.write(buffer, 0);
+        channel.force(false);
+    }
+}
@@ -0,0 +1,187 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+
+import org.json.JSONObject;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+// Additional process of the app watched next to it, e.g. a ":sync" process. Each target has
+// its own heartbeat policy and is relaunched through its own component. Processes of other
+// packages cannot be watched: since API 22 the process list only holds the caller's uid, so
+// they would always read as dead.
+public class MonitorTarget {
+
+    static final String LAUNCH_ACTIVITY = "activity";
+    static final String LAUNCH_SERVICE = "service";
+
+    private static final int FLAGS = Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_NO_ANIMATION;
+
+    public final String processName;
+    public final String packageName;
+    public final String launchComponent;
+    public final String launchAs;
+    public final String heartbeatPolicy;
+    public final long heartbeatInterval;
+    public final long minHeartbeatInterval;
+    public final long maxHeartbeatInterval;
+    public final double backoffFactor;
+    public final long killWindow;
+
+    // Resolved on first relaunch, like LaunchTarget for the app itself
+    private volatile Intent cachedIntent;
+
+    MonitorTarget(String processName, String packageName, String launchComponent, String launchAs, String heartbeatPolicy,
+                  long heartbeatInterval, long minHeartbeatInterval, long maxHeartbeatInterval, double backoffFactor,
+                  long killWindow) {
+        this.processName = processName;
+        this.packageName = packageName;
+        this.launchComponent = launchComponent;
+        this.launchAs = launchAs;
+        this.heartbeatPolicy = heartbeatPolicy;
+        this.heartbeatInterval = heartbeatInterval;
+        this.minHeartbeatInterval = minHeartbeatInterval;
+        this.maxHeartbeatInterval = maxHeartbeatInterval;
+        this.backoffFactor = backoffFactor;
+        this.killWindow = killWindow;
+    }
+
+    // Read one entry of the targets option, heartbeat settings default to the top-level ones
+    static MonitorTarget fromJSON(JSONObject json, String appPackage, WatchdogConfig defaults) {
+        String processName = json.optString("processName", null);
+        if (processName == null || processName.isEmpty()) {
+            throw new IllegalArgumentException("Every target needs a processName");
+        }
+        String packageName = json.optString("packageName", appPackage);
+        String launchComponent = json.optString("launchComponent", null);
+        String launchAs = json.optString("launchAs", LAUNCH_ACTIVITY);
+
+        String policy = defaults.heartbeatPolicy;
+        long interval = defaults.heartbeatInterval;
+        long minInterval = defaults.minHeartbeatInterval;
+        long maxInterval = defaults.maxHeartbeatInterval;
+        double backoff = defaults.backoffFactor;
+        long killWindow = defaults.killWindow;
+
+        JSONObject heartbeat = json.optJSONObject("heartbeat");
+        if (heartbeat != null) {
+            policy = heartbeat.optString("policy", policy);
+            interval = heartbeat.optLong("intervalMs", interval);
+            minInterval = heartbeat.optLong("minIntervalMs", minInterval);
+            maxInterval = heartbeat.optLong("maxIntervalMs", maxInterval);
+            backoff = heartbeat.optDouble("backoffFactor", backoff);
+            killWindow = heartbeat.optLong("killWindowMs", killWindow);
+        }
+
+        if (!appPackage.equals(packageName)) {
+            throw new IllegalArgumentException("Target " + processName + " must run in the app package " + appPackage
+                    + ", processes of other packages are not visible to the app");
+        }
+        if (!LAUNCH_ACTIVITY.equals(launchAs) && !LAUNCH_SERVICE.equals(launchAs)) {
+            throw new IllegalArgumentException("Unknown launchAs for " + processName + ": " + launchAs);
+        }
+        if (launchComponent != null && ComponentName.unflattenFromString(launchComponent) == null) {
+            throw new IllegalArgumentException("launchComponent of " + processName + " must look like 'com.example.app/.SyncService'");
+        }
+        if (LAUNCH_SERVICE.equals(launchAs) && launchComponent == null) {
+            throw new IllegalArgumentException("Target " + processName + " is launched as a service and needs a launchComponent");
+        }
+        if (!FixedHeartbeatPolicy.NAME.equals(policy) && !AdaptiveHeartbeatPolicy.NAME.equals(policy)) {
+            throw new IllegalArgumentException("Unknown heartbeat policy for " + processName + ": " + policy);
+        }
+        if (interval <= 0 || minInterval <= 0 || maxInterval < minInterval) {
+            throw new IllegalArgumentException("Heartbeat intervals of " + processName + " must be positive and minIntervalMs <= maxIntervalMs");
+        }
+        if (backoff < 1.0) {
+            throw new IllegalArgumentException("backoffFactor of " + processName + " must be >= 1");
+        }
+
+        return new MonitorTarget(processName, packageName, launchComponent, launchAs, policy, interval, minInterval,
+                maxInterval, backoff, killWindow);
+    }
+
+    // Read a target stored by writeTo()
+    static MonitorTarget readFrom(DataInputStream in) throws IOException {
+        String processName = in.readUTF();
+        String packageName = in.readUTF();
+        String launchComponent = in.readBoolean() ? in.readUTF() : null;
+        String launchAs = in.readUTF();
+        String heartbeatPolicy = in.readUTF();
+        long heartbeatInterval = in.readLong();
+        long minHeartbeatInterval = in.readLong();
+        long maxHeartbeatInterval = in.readLong();
+        double backoffFactor = in.readDouble();
+        long killWindow = in.readLong();
+        return new MonitorTarget(processName, packageName, launchComponent, launchAs, heartbeatPolicy, heartbeatInterval,
+                minHeartbeatInterval, maxHeartbeatInterval, backoffFactor, killWindow);
+    }
+
+    // Serialize the target for the config file
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeUTF(processName);
+        out.writeUTF(packageName);
+        out.writeBoolean(launchComponent != null);
+        if (launchComponent != null) {
+            out.writeUTF(launchComponent);
+        }
+        out.writeUTF(launchAs);
+        out.writeUTF(heartbeatPolicy);
+        out.writeLong(heartbeatInterval);
+        out.writeLong(minHeartbeatInterval);
+        out.writeLong(maxHeartbeatInterval);
+        out.writeDouble(backoffFactor);
+        out.writeLong(killWindow);
+    }
+
+    // Build a fresh heartbeat policy for this target
+    HeartbeatPolicy createHeartbeatPolicy() {
+        if (AdaptiveHeartbeatPolicy.NAME.equals(heartbeatPolicy)) {
+            return new AdaptiveHeartbeatPolicy(heartbeatInterval, minHeartbeatInterval, maxHeartbeatInterval, backoffFactor, killWindow);
+        }
+        return new FixedHeartbeatPolicy(heartbeatInterval);
+    }
+
+    boolean isService() {
+        return LAUNCH_SERVICE.equals(launchAs);
+    }
+
+    // Intent that brings the target back, resolved once. A copy is returned because
+    // startActivity and startService prepare the intent in place.
+    Intent getLaunchIntent(Context context) {
+        Intent intent = cachedIntent;
+        if (intent == null) {
+            intent = resolve(context);
+            if (intent == null) {
+                return null;
+            }
+            cachedIntent = intent;
+        }
+        return new Intent(intent);
+    }
+
+    // Forget the resolved intent, e.g. after the target package was updated
+    void invalidate() {
+        cachedIntent = null;
+    }
+
+    // Configured component first, then the launcher activity of the target package
+    private Intent resolve(Context context) {
+        if (launchComponent != null) {
+            Intent intent = new Intent();
+            intent.setComponent(ComponentName.unflattenFromString(launchComponent));
+            if (!isService()) {
+                intent.addFlags(FLAGS);
+            }
+            return intent;
+        }
+        Intent intent = context.getPackageManager().getLaunchIntentForPackage(packageName);
+        if (intent != null) {
+            intent.addFlags(FLAGS);
+        }
+        return intent;
+    }
+}
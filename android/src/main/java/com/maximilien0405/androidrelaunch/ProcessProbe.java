@@ -0,0 +1,133 @@
+package com.maximilien0405.androidrelaunch;
+
+import java.util.Set;
+
+// Cheap liveness probe for one process: resolves the best strategy once, remembers the
+// pid once found and answers from /proc or a short-lived cache whenever possible
+public class ProcessProbe {
+
+    static final int PID_UNKNOWN = -1;
+    static final int PROCESS_LIST_UNAVAILABLE = -2;
+
+    // How the last answer was obtained, cheapest first
+    public enum Strategy {
+        CACHE,
+        PROC,
+        EXIT_REASONS,
+        RUNNING_PROCESSES,
+        FOREGROUND_FALLBACK
+    }
+
+    // Source of process information, implemented on top of ActivityManager in production
+    public interface Backend {
+
+        // Scan the running processes for processName, returns its pid, PID_UNKNOWN or PROCESS_LIST_UNAVAILABLE
+        int findPid(String processName);
+
+        // Whether /proc can be used to test pids of this app at all
+        boolean canReadProc();
+
+        // Whether /proc still has an entry for pid
+        boolean isPidAlive(int pid);
+
+        // Whether exit records can be queried (API 30+)
+        boolean canQueryExitReasons();
+
+        // Whether the system recorded an exit for pid
+        boolean hasExited(String packageName, int pid);
+
+        // Last resort when the process list is unavailable
+        boolean isInForeground(String packageName);
+
+        // Add the names of all running processes to out with a single list query,
+        // returns false when the process list is unavailable
+        boolean snapshotRunning(Set<String> out);
+    }
+
+    private final Backend backend;
+    private final Clock clock;
+    private final String packageName;
+    private final String processName;
+    private final long cacheTtlNanos;
+    private final boolean useProc;
+    private final boolean useExitReasons;
+
+    private int pid = PID_UNKNOWN;
+    private boolean lastResult;
+    private long lastCheckAt;
+    private boolean hasResult = false;
+    private Strategy lastStrategy = Strategy.RUNNING_PROCESSES;
+
+    public ProcessProbe(Backend backend, String packageName, String processName, long cacheTtlMs) {
+        this(backend, packageName, processName, cacheTtlMs, Clock.NANO_TIME);
+    }
+
+    public ProcessProbe(Backend backend, String packageName, String processName, long cacheTtlMs, Clock clock) {
+        this.backend = backend;
+        this.clock = clock;
+        this.packageName = packageName;
+        this.processName = processName;
+        this.cacheTtlNanos = cacheTtlMs * 1000000L;
+        this.useProc = backend.canReadProc();
+        this.useExitReasons = !useProc && backend.canQueryExitReasons();
+    }
+
+    // Whether the process is alive, may answer from cache
+    public synchronized boolean isAlive() {
+        long now = clock.nanos();
+        if (hasResult && now - lastCheckAt < cacheTtlNanos) {
+            lastStrategy = Strategy.CACHE;
+            return lastResult;
+        }
+        lastResult = probe();
+        lastCheckAt = now;
+        hasResult = true;
+        return lastResult;
+    }
+
+    // Drop the cached answer, e.g. right after a relaunch
+    public synchronized void invalidate() {
+        hasResult = false;
+    }
+
+    // Strategy used by the last call to isAlive()
+    public synchronized Strategy getLastStrategy() {
+        return lastStrategy;
+    }
+
+    // Pid of the process when known, PID_UNKNOWN otherwise
+    public synchronized int getPid() {
+        return pid;
+    }
+
+    private boolean probe() {
+        if (pid > 0) {
+            if (useProc) {
+                lastStrategy = Strategy.PROC;
+                if (backend.isPidAlive(pid)) {
+                    return true;
+                }
+                pid = PID_UNKNOWN;
+                return false;
+            }
+            if (useExitReasons) {
+                lastStrategy = Strategy.EXIT_REASONS;
+                if (!backend.hasExited(packageName, pid)) {
+                    return true;
+                }
+                pid = PID_UNKNOWN;
+                return false;
+            }
+        }
+
+        // Pid unknown or no cheap signal available, fall back to the full process list
+        lastStrategy = Strategy.RUNNING_PROCESSES;
+        int found = backend.findPid(processName);
+        if (found == PROCESS_LIST_UNAVAILABLE) {
+            lastStrategy = Strategy.FOREGROUND_FALLBACK;
+            return backend.isInForeground(packageName);
+        }
+        pid = found;
+        return found > 0;
+    }
+}
@@ -0,0 +1,135 @@
+package com.maximilien0405.androidrelaunch;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Single-flight gate in front of app relaunches. The heartbeat, the service-destroyed
+// relaunch and Binder death can all see the same death; the first trigger moves the state
+// from a resting state to DETECTED and owns the launch, every trigger arriving while that
+// launch is in flight is coalesced. A launch that is not confirmed by the app coming up
+// within CONFIRM_TIMEOUT is counted as lost and no longer blocks the next one. The app is
+// up once its plugin loaded: in the app process the plugin confirms directly, the :watchdog
+// and :job processes wait for its first beat of the heartbeat slot after the launch.
+//
+//   IDLE / CONFIRMED / FAILED --trigger--> DETECTED --issued--> LAUNCHING --app up--> CONFIRMED
+//                                                  \--refused--> FAILED  \--timeout--> FAILED
+public class RelaunchCoordinator {
+
+    static final int IDLE = 0;
+    static final int DETECTED = 1;
+    static final int LAUNCHING = 2;
+    static final int CONFIRMED = 3;
+    static final int FAILED = 4;
+
+    // Outcomes of tryBegin(guard, now)
+    static final int BEGUN = 0;
+    static final int COALESCED = 1;
+    static final int THROTTLED = 2;
+
+    private static final String[] STATE_NAMES = { "idle", "detected", "launching", "confirmed", "failed" };
+
+    // Longer than the slowest cold start
+    static final long CONFIRM_TIMEOUT = 30000;
+
+    private static final RelaunchCoordinator instance = new RelaunchCoordinator(Clock.ELAPSED_REALTIME);
+
+    private final Clock clock;
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+    // Clock time in nanoseconds of the last move to LAUNCHING
+    private volatile long launchedAt;
+
+    RelaunchCoordinator(Clock clock) {
+        this.clock = clock;
+    }
+
+    // Coordinator shared by every relaunch path of this process
+    static RelaunchCoordinator get() {
+        return instance;
+    }
+
+    static String stateName(int state) {
+        return STATE_NAMES[state];
+    }
+
+    int getState() {
+        return state.get();
+    }
+
+    // Take a relaunch trigger, returns true if the caller owns the launch and must
+    // report it with launched() or failed()
+    boolean tryBegin() {
+        while (true) {
+            int current = state.get();
+            if (current == LAUNCHING && clock.nanos() - launchedAt > CONFIRM_TIMEOUT * 1000000L) {
+                // The app never came up, let this trigger start over
+                if (state.compareAndSet(LAUNCHING, FAILED)) {
+                    RelaunchStats.increment(RelaunchStats.LOST_RELAUNCHES);
+                }
+                continue;
+            }
+            if (current == DETECTED || current == LAUNCHING) {
+                RelaunchStats.increment(RelaunchStats.COALESCED_RELAUNCHES);
+                return false;
+            }
+            if (state.compareAndSet(current, DETECTED)) {
+                return true;
+            }
+        }
+    }
+
+    // Take a relaunch trigger and pay for it from the relaunch budget of guard, at wall clock
+    // time now. Returns BEGUN if the caller owns the launch and must report it with launched()
+    // or failed(), COALESCED when another trigger owns it, THROTTLED while cooling down.
+    int tryBegin(CrashLoopGuard guard, long now) throws IOException {
+        if (!tryBegin()) {
+            return COALESCED;
+        }
+        boolean acquired = false;
+        try {
+            // Refuse to feed a crash loop
+            acquired = guard.tryAcquire(now);
+        } finally {
+            if (!acquired) failed();
+        }
+        if (!acquired) {
+            RelaunchStats.increment(RelaunchStats.THROTTLED_RELAUNCHES);
+            return THROTTLED;
+        }
+        return BEGUN;
+    }
+
+    // The owner issued the launch
+    void launched() {
+        launchedAt = clock.nanos();
+        state.compareAndSet(DETECTED, LAUNCHING);
+    }
+
+    // The owner gave up, or the launch itself failed
+    void failed() {
+        if (!state.compareAndSet(DETECTED, FAILED)) {
+            state.compareAndSet(LAUNCHING, FAILED);
+        }
+    }
+
+    // The app came up, completes a launch in flight
+    void confirm() {
+        if (state.compareAndSet(LAUNCHING, CONFIRMED)) {
+            RelaunchStats.increment(RelaunchStats.CONFIRMED_RELAUNCHES);
+        }
+    }
+
+    // The plugin of the app beat the heartbeat slot at beatAt, clock time in nanoseconds.
+    // Only a beat after the launch shows the launched app is up, for processes that cannot
+    // see the plugin load. Returns true once no launch is waiting anymore.
+    boolean confirmBeat(long beatAt) {
+        if (state.get() != LAUNCHING) return true;
+        if (beatAt <= launchedAt) return false;
+        confirm();
+        return true;
+    }
+
+    // Whether a launch in flight is past the confirmation timeout, it is not waited for anymore
+    boolean isOverdue() {
+        return state.get() == LAUNCHING && clock.nanos() - launchedAt > CONFIRM_TIMEOUT * 1000000L;
+    }
+}
@@ -0,0 +1,174 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Service-less monitoring for the job mode. Each run is a one-shot job in the :job process
+// that checks the app once, relaunches it if it died and schedules the next run, so nothing
+// stays resident and no notification is shown between runs. Jobs are deferred in Doze and by
+// app standby, recovery takes minutes rather than seconds. Every run also checks all extra
+// targets with one process list snapshot; their own intervals cannot be kept between runs.
+//
+// Runs alternate between two job ids: scheduling the id of the running job would stop it,
+// so each run schedules the next one under the other id before doing its work.
+public class RelaunchJobService extends JobService {
+
+    private static final String TAG = "RelaunchJobService";
+    private static final int JOB_ID = 0x41524a42;
+    private static final int ALTERNATE_JOB_ID = JOB_ID + 1;
+    // Upper bound on waiting for the main thread to issue and journal a launch
+    private static final long LAUNCH_TIMEOUT = 10000;
+
+    private static volatile boolean statsRestored = false;
+
+    // Start a new chain of runs after the configured heartbeat interval, replacing a pending one
+    static void schedule(Context context, WatchdogConfig config) {
+        cancel(context);
+        schedule(context, JOB_ID, config);
+    }
+
+    private static void schedule(Context context, int jobId, WatchdogConfig config) {
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (jobScheduler == null) {
+            Log.e(TAG, "JobScheduler not available");
+            return;
+        }
+        // The adaptive policy keeps its state in memory, a process that does not outlive
+        // the run can only follow the base interval
+        long interval = config.heartbeatInterval;
+        JobInfo job = new JobInfo.Builder(jobId, new ComponentName(context, RelaunchJobService.class))
+                .setMinimumLatency(interval)
+                .setOverrideDeadline(interval * 2)
+                .build();
+        if (jobScheduler.schedule(job) != JobScheduler.RESULT_SUCCESS) {
+            Log.e(TAG, "Failed to schedule liveness job");
+        }
+    }
+
+    // Drop the pending run under either id
+    static void cancel(Context context) {
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (jobScheduler != null) {
+            jobScheduler.cancel(JOB_ID);
+            jobScheduler.cancel(ALTERNATE_JOB_ID);
+        }
+    }
+
+    // Jobs start on the main thread, the check and the relaunch IPC run on a worker. The job
+    // finishes once the launches it issued were journaled, the process may be reclaimed right after.
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        Thread thread = new Thread(() -> {
+            try {
+                Semaphore launched = new Semaphore(0);
+                int issued = run(params.getJobId(), launched::release);
+                if (issued > 0 && !launched.tryAcquire(issued, LAUNCH_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                    Log.w(TAG, "Launches not journaled within " + LAUNCH_TIMEOUT + " ms");
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error in liveness job: " + e.getMessage(), e);
+            } finally {
+                ModeFootprint.get(this).sample(ModeFootprint.OWN_PROCESS, ModeFootprint.JOB);
+                flushStats();
+                jobFinished(params, false);
+            }
+        }, "AndroidRelaunch-Job");
+        thread.start();
+        return true;
+    }
+
+    // The system stopped the run early, the next one is already scheduled. The worker is left
+    // to finish its single check: an interrupt would close the file channels it writes through.
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        return false;
+    }
+
+    // One check of the app and its targets, returns how many launches were handed to the main
+    // thread, done runs once for each of them when it was journaled
+    private int run(int jobId, Runnable done) {
+        if (!statsRestored) {
+            statsRestored = true;
+            RelaunchStats.restoreFrom(RelaunchStats.jobFile(this));
+        }
+
+        // The app process may have changed the settings since the last run
+        ConfigStore.Snapshot snapshot = ConfigStore.reload(this);
+        if (!snapshot.enabled || !AndroidRelaunchPlugin.MODE_JOB.equals(snapshot.config.mode)) {
+            RelaunchStats.increment(RelaunchStats.SKIPPED_CHECKS);
+            return 0;
+        }
+        // Scheduled first under the other id so a run killed mid-way still leaves the next one
+        // behind, without stopping this one
+        schedule(this, jobId == JOB_ID ? ALTERNATE_JOB_ID : JOB_ID, snapshot.config);
+        LaunchTarget.setComponent(snapshot.config.launchComponent);
+
+        int issued = checkTargets(snapshot.config, done);
+        return checkApp(snapshot.config, done) ? issued + 1 : issued;
+    }
+
+    // Relaunch the app if it died, returns true when a launch was handed to the main thread
+    private boolean checkApp(WatchdogConfig config, Runnable done) {
+        RelaunchStats.increment(RelaunchStats.HEARTBEATS);
+        long now = SystemClock.elapsedRealtimeNanos();
+        HeartbeatSlot slot = HeartbeatSlot.openForRead(HeartbeatSlot.file(this));
+        boolean slotRead = slot != null && slot.read() == HeartbeatSlot.RESULT_OK;
+        boolean fresh = slotRead && slot.isFresh(now, 3 * AndroidRelaunchPlugin.SLOT_INTERVAL * 1000000L);
+        long lastBeatAt = slotRead ? slot.getTimestamp() : 0;
+        if (slot != null) {
+            slot.close();
+        }
+        if (fresh) {
+            RelaunchStats.increment(RelaunchStats.SLOT_CHECKS);
+            // A launch issued by an earlier run of this process came up once the plugin beat after it
+            RelaunchCoordinator.get().confirmBeat(lastBeatAt);
+            return false;
+        }
+        if (AppProcessChecker.isAppRunning(getApplicationContext())) {
+            // A running process alone does not show the launch reached the app
+            return false;
+        }
+
+        // The last beat of the app bounds how long it has been down
+        long latencyMs = slotRead ? (now - lastBeatAt) / 1000000L : config.heartbeatInterval;
+        Log.d(TAG, "App is not running, relaunching");
+        return Relauncher.relaunch(this, RelaunchJournal.PATH_JOB, latencyMs, now, done);
+    }
+
+    // Relaunch the extra targets found dead, returns how many launches were handed to the main thread
+    private int checkTargets(WatchdogConfig config, final Runnable done) {
+        if (config.targets.isEmpty()) return 0;
+        final Context context = getApplicationContext();
+        final int[] issued = { 0 };
+        TargetMonitor monitor = new TargetMonitor(new AndroidProcessBackend(context), config.targets,
+                SystemClock.elapsedRealtime());
+        // A dead target was down for up to one run
+        monitor.checkAll(SystemClock.elapsedRealtime(), (index, target, downMs) -> {
+            Log.d(TAG, "Target " + target.processName + " is not running, relaunching");
+            if (Relauncher.relaunchTarget(context, index, target, config.heartbeatInterval,
+                    SystemClock.elapsedRealtimeNanos(), done)) {
+                issued[0]++;
+            }
+        });
+        return issued[0];
+    }
+
+    // Persist this process' stats so the plugin in the app process can report them
+    private void flushStats() {
+        try {
+            RelaunchStats.writeTo(RelaunchStats.jobFile(this));
+            RelaunchTrace.writeTo(RelaunchTrace.file(this, AndroidRelaunchPlugin.MODE_JOB));
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to persist stats: " + e.getMessage(), e);
+        }
+    }
+}
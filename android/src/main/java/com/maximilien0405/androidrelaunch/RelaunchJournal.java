@@ -0,0 +1,341 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Append-only journal of relaunch events written by the monitoring services and replayed
+// to JavaScript by the plugin, so an event survives the process that was just relaunched.
+// The delivery cursor only moves when a JavaScript listener acked an event, an event handed
+// to a page that never ran its listener is replayed by the next process.
+// Appends and compaction are serialized through a separate lock file shared by all processes.
+// Larger payloads, such as a hang stack, go to attachments/<sequence>.txt next to the journal.
+//
+// File layout, little endian:
+//   header  int magic, short version, short entry size, long next sequence
+//   entries long sequence, long timestamp, int latency ms, byte path, byte exit reason,
+//           short target, int checksum, int reserved, long detected at
+// target is 0 for the app itself and i + 1 for the i-th configured MonitorTarget. detected at
+// is the SystemClock.elapsedRealtimeNanos() of the detection, the incident of its trace spans.
+public class RelaunchJournal {
+
+    static final byte PATH_HEARTBEAT = 1;
+    static final byte PATH_SERVICE_DESTROYED = 2;
+    static final byte PATH_BINDER_DEATH = 3;
+    static final byte PATH_TARGET = 4;
+    static final byte PATH_HANG = 5;
+    // Not a relaunch: a main-thread hang report, with the stack as attachment
+    static final byte PATH_HANG_REPORT = 6;
+    static final byte PATH_JOB = 7;
+    static final byte PATH_JS_PROBE = 8;
+
+    static final short TARGET_APP = 0;
+
+    // Exit reasons are ApplicationExitInfo.REASON_* values, REASON_UNKNOWN is 0
+    static final byte EXIT_REASON_UNKNOWN = 0;
+
+    static final int MAX_ENTRIES = 128;
+
+    private static final int MAGIC = 0x41524A4E;
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int ENTRY_SIZE = 40;
+
+    private static final String TAG = "RelaunchJournal";
+
+    private static RelaunchJournal instance;
+
+    private final File file;
+    private final File cursorFile;
+    private final File lockFile;
+    private final File attachmentDir;
+
+    // One relaunch as recorded in the journal
+    public static class Entry {
+        public final long sequence;
+        public final long timestamp;
+        public final int latencyMs;
+        public final byte path;
+        public final byte exitReason;
+        public final short target;
+        public final long detectedAt;
+
+        Entry(long sequence, long timestamp, int latencyMs, byte path, byte exitReason, short target, long detectedAt) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.latencyMs = latencyMs;
+            this.path = path;
+            this.exitReason = exitReason;
+            this.target = target;
+            this.detectedAt = detectedAt;
+        }
+    }
+
+    RelaunchJournal(File dir) {
+        this.file = new File(dir, "relaunch.journal");
+        this.cursorFile = new File(dir, "relaunch.journal.cursor");
+        this.lockFile = new File(dir, "relaunch.journal.lock");
+        this.attachmentDir = new File(dir, "attachments");
+    }
+
+    // Journal in the app's files dir, shared by all callers in this process
+    static synchronized RelaunchJournal get(Context context) {
+        if (instance == null) {
+            instance = new RelaunchJournal(new File(context.getFilesDir(), "androidrelaunch"));
+        }
+        return instance;
+    }
+
+    // Name of a detection path as reported to JavaScript
+    static String pathName(byte path) {
+        switch (path) {
+            case PATH_HEARTBEAT: return "heartbeat";
+            case PATH_SERVICE_DESTROYED: return "serviceDestroyed";
+            case PATH_BINDER_DEATH: return "binderDeath";
+            case PATH_TARGET: return "target";
+            case PATH_HANG: return "hang";
+            case PATH_HANG_REPORT: return "hangReport";
+            case PATH_JOB: return "job";
+            case PATH_JS_PROBE: return "jsProbe";
+            default: return "unknown";
+        }
+    }
+
+    // Name of an exit reason as reported to JavaScript
+    static String exitReasonName(byte exitReason) {
+        return ExitReasonStats.reasonName(exitReason);
+    }
+
+    // Record a relaunch detected at detectedAt, returns the sequence of the new entry
+    synchronized long append(long timestamp, int latencyMs, byte path, byte exitReason, short target, long detectedAt)
+            throws IOException {
+        ensureDir();
+        long sequence;
+        try (RandomAccessFile lockRaf = new RandomAccessFile(lockFile, "rw")) {
+            FileLock lock = lockRaf.getChannel().lock();
+            try {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    FileChannel channel = raf.getChannel();
+                    sequence = readNextSequence(channel);
+                    long end = HEADER_SIZE + entryCount(channel) * (long) ENTRY_SIZE;
+
+                    ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                    entry.putLong(0, sequence);
+                    entry.putLong(8, timestamp);
+                    entry.putInt(16, latencyMs);
+                    entry.put(20, path);
+                    entry.put(21, exitReason);
+                    entry.putShort(22, target);
+                    entry.putInt(24, checksum(sequence, timestamp, latencyMs, path, exitReason, target, detectedAt));
+                    entry.putLong(32, detectedAt);
+                    channel.write(entry, end);
+                    writeHeader(channel, sequence + 1);
+                    channel.force(false);
+                }
+            } finally {
+                lock.release();
+            }
+        }
+        return sequence;
+    }
+
+    // Attach text to an entry, e.g. the main thread stack of a hang report
+    synchronized void attach(long sequence, String text) throws IOException {
+        if (!attachmentDir.exists() && !attachmentDir.mkdirs()) {
+            throw new IOException("Cannot create " + attachmentDir);
+        }
+        File target = attachmentFile(sequence);
+        File tmp = new File(target.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        if (!tmp.renameTo(target)) {
+            throw new IOException("Cannot replace " + target);
+        }
+    }
+
+    // Text attached to an entry, null when there is none
+    synchronized String readAttachment(long sequence) throws IOException {
+        File attachment = attachmentFile(sequence);
+        if (!attachment.exists()) return null;
+        byte[] bytes = new byte[(int) attachment.length()];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(attachment))) {
+            in.readFully(bytes);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Entries newer than the delivery cursor and than after, oldest first, at most max of them
+    synchronized List<Entry> readUndelivered(long after, int max) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        if (!file.exists()) {
+            return entries;
+        }
+        long cursor = Math.max(readCursor(), after);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            long count = entryCount(channel);
+            ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            for (long i = 0; i < count && entries.size() < max; i++) {
+                buffer.clear();
+                if (channel.read(buffer, HEADER_SIZE + i * ENTRY_SIZE) < ENTRY_SIZE) break;
+                long sequence = buffer.getLong(0);
+                if (sequence <= cursor) continue;
+                long timestamp = buffer.getLong(8);
+                int latencyMs = buffer.getInt(16);
+                byte path = buffer.get(20);
+                byte exitReason = buffer.get(21);
+                short target = buffer.getShort(22);
+                long detectedAt = buffer.getLong(32);
+                if (buffer.getInt(24) != checksum(sequence, timestamp, latencyMs, path, exitReason, target, detectedAt)) {
+                    // Torn tail from a writer that died mid-append
+                    continue;
+                }
+                entries.add(new Entry(sequence, timestamp, latencyMs, path, exitReason, target, detectedAt));
+            }
+        }
+        return entries;
+    }
+
+    // Remember that everything up to sequence has been delivered, the cursor never moves back
+    synchronized void markDelivered(long sequence) throws IOException {
+        if (sequence <= readCursor()) return;
+        ensureDir();
+        try (RandomAccessFile raf = new RandomAccessFile(cursorFile, "rw")) {
+            ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putLong(0, sequence);
+            raf.getChannel().write(buffer, 0);
+            raf.getChannel().force(false);
+        }
+    }
+
+    // Keep the journal bounded: drop delivered entries once it grows past MAX_ENTRIES,
+    // and the oldest undelivered ones if there are still too many
+    synchronized void compact() throws IOException {
+        if (!file.exists()) return;
+        deleteDeliveredAttachments();
+        ensureDir();
+        try (RandomAccessFile lockRaf = new RandomAccessFile(lockFile, "rw")) {
+            FileLock lock = lockRaf.getChannel().lock();
+            try {
+                long cursor = readCursor();
+                File tmp = new File(file.getPath() + ".tmp");
+                try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                    FileChannel channel = raf.getChannel();
+                    long count = entryCount(channel);
+                    if (count <= MAX_ENTRIES) return;
+
+                    long nextSequence = readNextSequence(channel);
+                    long keepFrom = Math.max(count - MAX_ENTRIES / 2, 0);
+                    try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+                        FileChannel outChannel = out.getChannel();
+                        outChannel.truncate(0);
+                        writeHeader(outChannel, nextSequence);
+                        long position = HEADER_SIZE;
+                        ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                        for (long i = keepFrom; i < count; i++) {
+                            buffer.clear();
+                            if (channel.read(buffer, HEADER_SIZE + i * ENTRY_SIZE) < ENTRY_SIZE) break;
+                            if (buffer.getLong(0) <= cursor) continue;
+                            buffer.flip();
+                            outChannel.write(buffer, position);
+                            position += ENTRY_SIZE;
+                        }
+                        outChannel.force(false);
+                    }
+                }
+                if (!tmp.renameTo(file)) {
+                    throw new IOException("Cannot replace " + file);
+                }
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    // Attachments are only read during delivery, drop them once their entry is delivered
+    private void deleteDeliveredAttachments() throws IOException {
+        File[] attachments = attachmentDir.listFiles();
+        if (attachments == null) return;
+        long cursor = readCursor();
+        for (File attachment : attachments) {
+            String name = attachment.getName();
+            int dot = name.indexOf('.');
+            try {
+                long sequence = Long.parseLong(dot > 0 ? name.substring(0, dot) : name);
+                if (sequence <= cursor && !attachment.delete()) {
+                    Log.w(TAG, "Cannot delete " + attachment);
+                }
+            } catch (NumberFormatException e) {
+                // Not ours
+            }
+        }
+    }
+
+    private File attachmentFile(long sequence) {
+        return new File(attachmentDir, sequence + ".txt");
+    }
+
+    private void ensureDir() throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+    }
+
+    private long readCursor() throws IOException {
+        if (!cursorFile.exists()) return 0;
+        try (RandomAccessFile raf = new RandomAccessFile(cursorFile, "r")) {
+            ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            if (raf.getChannel().read(buffer, 0) < 8) return 0;
+            return buffer.getLong(0);
+        }
+    }
+
+    // Next sequence from the header, sequences start at 1 so a zero cursor means nothing delivered
+    private static long readNextSequence(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        if (channel.read(header, 0) < HEADER_SIZE || header.getInt(0) != MAGIC
+                || header.getShort(4) != VERSION) {
+            return 1;
+        }
+        return Math.max(header.getLong(8), 1);
+    }
+
+    private static void writeHeader(FileChannel channel, long nextSequence) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0, MAGIC);
+        header.putShort(4, VERSION);
+        header.putShort(6, (short) ENTRY_SIZE);
+        header.putLong(8, nextSequence);
+        channel.write(header, 0);
+    }
+
+    // Whole entries in the file, a partial tail entry is ignored and later overwritten
+    private static long entryCount(FileChannel channel) throws IOException {
+        return Math.max(channel.size() - HEADER_SIZE, 0) / ENTRY_SIZE;
+    }
+
+    private static int checksum(long sequence, long timestamp, int latencyMs, byte path, byte exitReason, short target,
+            long detectedAt) {
+        long h = sequence * 0x9E3779B97F4A7C15L ^ Long.rotateLeft(timestamp, 29);
+        h ^= ((long) latencyMs << 16) | ((path & 0xFF) << 8) | (exitReason & 0xFF);
+        h ^= (long) (target & 0xFFFF) << 48;
+        h ^= Long.rotateLeft(detectedAt, 13);
+        h *= 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 32));
+    }
+}
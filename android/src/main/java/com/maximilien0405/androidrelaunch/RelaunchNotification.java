@@ -0,0 +1,78 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+
+public class RelaunchNotification {
+
+    private static final String TAG = "RelaunchNotification";
+    static final String CHANNEL_ID = "AndroidRelaunchChannel";
+
+    // Create notification channel for Android 8.0+
+    static void createChannel(Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            try {
+                NotificationManager manager = context.getSystemService(NotificationManager.class);
+                if (manager == null) {
+                    Log.e(TAG, "NotificationManager is null");
+                    return;
+                }
+                
+                // Check if channel already exists
+                if (manager.getNotificationChannel(CHANNEL_ID) != null) {
+                    Log.d(TAG, "Notification channel already exists");
+                    return;
+                }
+                
+                NotificationChannel serviceChannel = new NotificationChannel(
+                        CHANNEL_ID,
+                        "Android Relaunch Service",
+                        NotificationManager.IMPORTANCE_LOW
+                );
+                serviceChannel.setDescription("Keeps the app alive and monitors for crashes");
+                
+                // Set sound to null for API 26+
+                serviceChannel.setSound(null, null);
+                serviceChannel.setShowBadge(false);
+                serviceChannel.enableLights(false);
+                serviceChannel.enableVibration(false);
+                
+                manager.createNotificationChannel(serviceChannel);
+                Log.d(TAG, "Notification channel created successfully");
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to create notification channel: " + e.getMessage(), e);
+                throw e; // Re-throw to handle in calling method
+            }
+        }
+    }
+
+    // Build the persistent notification shown while monitoring is active
+    static Notification build(Context context) {
+        // Create notification compatible with API 23+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setContentTitle("App is active")
+                .setContentText("Monitoring app to keep it alive")
+                .setSmallIcon(android.R.drawable.ic_media_play)
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .setOngoing(true)
+                .setAutoCancel(false);
+
+        // Set category for API 24+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            builder.setCategory(NotificationCompat.CATEGORY_SERVICE);
+        }
+
+        // For API 26+, set importance
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setChannelId(CHANNEL_ID);
+        }
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,240 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.content.Context;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Process-wide counters and latency histograms of the monitoring paths. Recording is
+// lock-free and allocation-free so it can sit on the heartbeat path.
+public class RelaunchStats {
+
+    static final int HEARTBEATS = 0;
+    static final int SLOT_CHECKS = 1;
+    static final int SKIPPED_CHECKS = 2;
+    static final int RELAUNCHES = 3;
+    static final int FAILED_RELAUNCHES = 4;
+    static final int THROTTLED_RELAUNCHES = 5;
+    static final int BINDER_DEATHS = 6;
+    static final int STALL_KILLS = 7;
+    static final int TARGET_SNAPSHOTS = 8;
+    static final int TARGET_RELAUNCHES = 9;
+    static final int HANGS = 10;
+    static final int RENDERER_GONE = 11;
+    static final int RENDERER_RECOVERIES = 12;
+    static final int DELAYED_CHECKS = 13;
+    // Rises into each memory pressure grade
+    static final int PRESSURE_MODERATE = 14;
+    static final int PRESSURE_HIGH = 15;
+    static final int PRESSURE_CRITICAL = 16;
+    // Triggers folded into a relaunch already in flight, launches confirmed by the app
+    // coming up, and launches never confirmed
+    static final int COALESCED_RELAUNCHES = 17;
+    static final int CONFIRMED_RELAUNCHES = 18;
+    static final int LOST_RELAUNCHES = 19;
+    // JavaScript probes sent, outages without an ack, and pages acking again after one
+    static final int PROBES = 20;
+    static final int PROBE_TIMEOUTS = 21;
+    static final int PROBE_RECOVERIES = 22;
+    static final int STRATEGY_BASE = 23;
+
+    private static final String[] COUNTER_NAMES = {
+        "heartbeats", "slotChecks", "skippedChecks", "relaunches", "failedRelaunches",
+        "throttledRelaunches", "binderDeaths", "stallKills", "targetSnapshots", "targetRelaunches", "hangs", "rendererGone", "rendererRecoveries",
+        "delayedChecks", "pressureModerate", "pressureHigh", "pressureCritical",
+        "coalescedRelaunches", "confirmedRelaunches", "lostRelaunches", "probes", "probeTimeouts", "probeRecoveries"
+    };
+    private static final ProcessProbe.Strategy[] STRATEGIES = ProcessProbe.Strategy.values();
+    private static final int COUNTERS = STRATEGY_BASE + STRATEGIES.length;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final AtomicLongArray counters = new AtomicLongArray(COUNTERS);
+
+    // Duration of AppProcessChecker.isAppRunning
+    static final LatencyHistogram checkLatency = new LatencyHistogram();
+    // Time from detecting the death to startActivity returning
+    static final LatencyHistogram relaunchLatency = new LatencyHistogram();
+    // Time from handing a relaunch event to the bridge to its listener's ack, the eventDelivery span
+    static final LatencyHistogram deliveryLatency = new LatencyHistogram();
+    // How late the main looper ran the heartbeat slot beat
+    static final LatencyHistogram looperLag = new LatencyHistogram();
+    // Time from the WebView renderer dying to the recreated WebView finishing its load
+    static final LatencyHistogram rendererRecovery = new LatencyHistogram();
+    // How late heartbeat checks ran compared to when they were scheduled, sleep included
+    static final LatencyHistogram checkDelay = new LatencyHistogram();
+    // How long each check or relaunch kept the CPU awake
+    static final LatencyHistogram wakeLockHeld = new LatencyHistogram();
+    // Round trip of a probe through the bridge and the JavaScript event loop
+    static final LatencyHistogram probeRtt = new LatencyHistogram();
+
+    private static final LatencyHistogram[] HISTOGRAMS = {
+        checkLatency, relaunchLatency, deliveryLatency, looperLag, rendererRecovery, checkDelay, wakeLockHeld,
+        probeRtt
+    };
+    private static final String[] HISTOGRAM_NAMES = {
+        "checkLatency", "relaunchLatency", "deliveryLatency", "looperLag", "rendererRecovery", "checkDelay",
+        "wakeLockHeld", "probeRtt"
+    };
+
+    static void increment(int counter) {
+        counters.incrementAndGet(counter);
+    }
+
+    // Count a check answered by the given probe strategy
+    static void countStrategy(ProcessProbe.Strategy strategy) {
+        counters.incrementAndGet(STRATEGY_BASE + strategy.ordinal());
+    }
+
+    static long get(int counter) {
+        return counters.get(counter);
+    }
+
+    // Where the watchdog process persists its stats
+    static File watchdogFile(Context context) {
+        return new File(new File(context.getFilesDir(), "androidrelaunch"), "watchdog-stats.bin");
+    }
+
+    // Where the job mode persists its stats between runs
+    static File jobFile(Context context) {
+        return new File(new File(context.getFilesDir(), "androidrelaunch"), "job-stats.bin");
+    }
+
+    // Counters and histograms of this process as a JavaScript object
+    static JSObject toJSObject() {
+        long[] values = new long[COUNTERS];
+        for (int i = 0; i < COUNTERS; i++) {
+            values[i] = counters.get(i);
+        }
+        JSObject result = new JSObject();
+        result.put("counters", countersToJSObject(values));
+        for (int i = 0; i < HISTOGRAMS.length; i++) {
+            result.put(HISTOGRAM_NAMES[i], histogramToJSObject(HISTOGRAMS[i]));
+        }
+        return result;
+    }
+
+    // Persist this process' stats so another process can report them
+    static void writeTo(File file) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(COUNTERS);
+            for (int i = 0; i < COUNTERS; i++) {
+                out.writeLong(counters.get(i));
+            }
+            out.writeInt(HISTOGRAMS.length);
+            for (LatencyHistogram histogram : HISTOGRAMS) {
+                out.writeLong(histogram.getCount());
+                out.writeLong(histogram.getSumMicros());
+                out.writeLong(histogram.getMaxMicros());
+                for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+                    out.writeLong(histogram.getBucket(i));
+                }
+            }
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+
+    // Read stats persisted by another process, null when missing or unreadable
+    static JSObject readFrom(File file) {
+        long[] values = new long[COUNTERS];
+        LatencyHistogram[] histograms = new LatencyHistogram[HISTOGRAMS.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        if (!read(file, values, histograms)) return null;
+        JSObject result = new JSObject();
+        result.put("counters", countersToJSObject(values));
+        for (int i = 0; i < histograms.length; i++) {
+            result.put(HISTOGRAM_NAMES[i], histogramToJSObject(histograms[i]));
+        }
+        return result;
+    }
+
+    // Add stats persisted by an earlier instance of this process, for processes that only
+    // live while they work and would otherwise start counting from zero every time
+    static boolean restoreFrom(File file) {
+        long[] values = new long[COUNTERS];
+        if (!read(file, values, HISTOGRAMS)) return false;
+        for (int i = 0; i < COUNTERS; i++) {
+            counters.addAndGet(i, values[i]);
+        }
+        return true;
+    }
+
+    // Add the persisted values to values and histograms, false when missing or unreadable
+    private static boolean read(File file, long[] values, LatencyHistogram[] histograms) {
+        if (!file.exists()) return false;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != FORMAT_VERSION) return false;
+            int stored = in.readInt();
+            long[] persisted = new long[Math.max(stored, COUNTERS)];
+            for (int i = 0; i < stored; i++) {
+                persisted[i] = in.readLong();
+            }
+            int persistedHistograms = in.readInt();
+            long[][] buckets = new long[persistedHistograms][LatencyHistogram.BUCKETS];
+            long[][] totals = new long[persistedHistograms][3];
+            for (int h = 0; h < persistedHistograms; h++) {
+                for (int i = 0; i < 3; i++) {
+                    totals[h][i] = in.readLong();
+                }
+                for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+                    buckets[h][i] = in.readLong();
+                }
+            }
+            // Only apply a file read to the end
+            System.arraycopy(persisted, 0, values, 0, values.length);
+            for (int h = 0; h < Math.min(persistedHistograms, histograms.length); h++) {
+                histograms[h].add(buckets[h], totals[h][0], totals[h][1], totals[h][2]);
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static JSObject countersToJSObject(long[] values) {
+        JSObject result = new JSObject();
+        for (int i = 0; i < COUNTER_NAMES.length; i++) {
+            result.put(COUNTER_NAMES[i], values[i]);
+        }
+        JSObject strategies = new JSObject();
+        for (ProcessProbe.Strategy strategy : STRATEGIES) {
+            strategies.put(strategy.name().toLowerCase(), values[STRATEGY_BASE + strategy.ordinal()]);
+        }
+        result.put("checksByStrategy", strategies);
+        return result;
+    }
+
+    private static JSObject histogramToJSObject(LatencyHistogram histogram) {
+        JSObject result = new JSObject();
+        long count = histogram.getCount();
+        result.put("count", count);
+        result.put("meanUs", count > 0 ? histogram.getSumMicros() / count : 0);
+        result.put("maxUs", histogram.getMaxMicros());
+        result.put("p50Us", histogram.getPercentileMicros(0.5));
+        result.put("p90Us", histogram.getPercentileMicros(0.9));
+        result.put("p99Us", histogram.getPercentileMicros(0.99));
+        JSArray buckets = new JSArray();
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            buckets.put(histogram.getBucket(i));
+        }
+        result.put("buckets", buckets);
+        return result;
+    }
+}
@@ -0,0 +1,210 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+// Stage timeline of relaunches. Every stage is an android.os.Trace section for systrace and
+// Perfetto captures, and the same span goes into a bounded ring so recent incidents can be
+// exported from field devices as Chrome trace JSON. Span times are elapsedRealtimeNanos(),
+// shared by all processes, so the rings persisted by the :watchdog and :job processes line
+// up with the one of the app. Spans of one incident carry the time its death was detected.
+public class RelaunchTrace {
+
+    static final int DETECTION = 0;
+    static final int RELAUNCH_DELAY = 1;
+    static final int RESOLVE_INTENT = 2;
+    static final int START_ACTIVITY = 3;
+    static final int BRIDGE_LOAD = 4;
+    static final int EVENT_DELIVERY = 5;
+    // Trace sections only, one per check would flush incidents out of the ring
+    static final int HEARTBEAT_CHECK = 6;
+
+    private static final String[] STAGE_NAMES = {
+        "detection", "relaunchDelay", "resolveIntent", "startActivity", "bridgeLoad", "eventDelivery",
+        "heartbeatCheck"
+    };
+
+    static final int CAPACITY = 256;
+    private static final int FORMAT_VERSION = 1;
+
+    // Ring of spans, oldest overwritten first
+    private static final byte[] stages = new byte[CAPACITY];
+    private static final long[] starts = new long[CAPACITY];
+    private static final long[] durations = new long[CAPACITY];
+    private static final long[] incidents = new long[CAPACITY];
+    private static final int[] tids = new int[CAPACITY];
+    private static int next = 0;
+    private static int size = 0;
+
+    private RelaunchTrace() {}
+
+    // Open a Trace section for a stage on this thread, returns the start time for end()
+    static long begin(int stage) {
+        Trace.beginSection(STAGE_NAMES[stage]);
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    // Close the section opened by begin() on this thread and keep its span
+    static void end(int stage, long startedAt, long incident) {
+        Trace.endSection();
+        record(stage, startedAt, SystemClock.elapsedRealtimeNanos(), incident);
+    }
+
+    // Trace section only, for work too frequent or too early to keep in the ring
+    static void beginSection(int stage) {
+        Trace.beginSection(STAGE_NAMES[stage]);
+    }
+
+    static void endSection() {
+        Trace.endSection();
+    }
+
+    // Trace section that may end on another thread, the cookie pairs begin and end.
+    // Async sections need API 29, older systems skip them.
+    static void beginAsyncSection(int stage, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(STAGE_NAMES[stage], cookie);
+        }
+    }
+
+    static void endAsyncSection(int stage, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(STAGE_NAMES[stage], cookie);
+        }
+    }
+
+    // Keep a span that already elapsed, such as the time a dead process went unnoticed
+    static synchronized void record(int stage, long startNanos, long endNanos, long incident) {
+        stages[next] = (byte) stage;
+        starts[next] = startNanos;
+        durations[next] = Math.max(0, endNanos - startNanos);
+        incidents[next] = incident;
+        tids[next] = Process.myTid();
+        next = (next + 1) % CAPACITY;
+        size = Math.min(size + 1, CAPACITY);
+    }
+
+    // Where the :watchdog and :job processes persist their rings
+    static File file(Context context, String mode) {
+        return new File(new File(context.getFilesDir(), "androidrelaunch"), mode + "-trace.bin");
+    }
+
+    // Persist the ring of this process so the app process can export it
+    static void writeTo(File file) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(Process.myPid());
+            out.writeUTF(processName());
+            synchronized (RelaunchTrace.class) {
+                out.writeInt(size);
+                for (int i = 0; i < size; i++) {
+                    int at = (next - size + i + CAPACITY) % CAPACITY;
+                    out.writeByte(stages[at]);
+                    out.writeLong(starts[at]);
+                    out.writeLong(durations[at]);
+                    out.writeLong(incidents[at]);
+                    out.writeInt(tids[at]);
+                }
+            }
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+
+    // Spans of this process and of the persisted rings as a Chrome trace, loadable as is
+    // in ui.perfetto.dev or chrome://tracing
+    static JSObject export(File... persisted) {
+        JSArray events = new JSArray();
+        int pid = Process.myPid();
+        events.put(processMetadata(pid, processName()));
+        synchronized (RelaunchTrace.class) {
+            for (int i = 0; i < size; i++) {
+                int at = (next - size + i + CAPACITY) % CAPACITY;
+                events.put(span(pid, stages[at], starts[at], durations[at], incidents[at], tids[at]));
+            }
+        }
+
+        for (File file : persisted) {
+            if (!file.exists()) continue;
+            try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                if (in.readInt() != FORMAT_VERSION) continue;
+                int otherPid = in.readInt();
+                String otherName = in.readUTF();
+                // A process restarted with our pid would merge into our track
+                if (otherPid == pid) otherPid = -otherPid;
+                events.put(processMetadata(otherPid, otherName));
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    byte stage = in.readByte();
+                    long start = in.readLong();
+                    long duration = in.readLong();
+                    long incident = in.readLong();
+                    int tid = in.readInt();
+                    events.put(span(otherPid, stage, start, duration, incident, tid));
+                }
+            } catch (IOException e) {
+                // An unreadable ring is skipped, the other processes still export
+            }
+        }
+
+        JSObject result = new JSObject();
+        result.put("traceEvents", events);
+        result.put("displayTimeUnit", "ms");
+        return result;
+    }
+
+    private static JSObject span(int pid, int stage, long start, long duration, long incident, int tid) {
+        JSObject event = new JSObject();
+        event.put("name", stage >= 0 && stage < STAGE_NAMES.length ? STAGE_NAMES[stage] : "unknown");
+        event.put("cat", "relaunch");
+        event.put("ph", "X");
+        event.put("ts", start / 1000L);
+        event.put("dur", duration / 1000L);
+        event.put("pid", pid);
+        event.put("tid", tid);
+        if (incident != 0) {
+            JSObject args = new JSObject();
+            args.put("incident", incident);
+            event.put("args", args);
+        }
+        return event;
+    }
+
+    private static JSObject processMetadata(int pid, String name) {
+        JSObject args = new JSObject();
+        args.put("name", name);
+        JSObject event = new JSObject();
+        event.put("name", "process_name");
+        event.put("ph", "M");
+        event.put("pid", pid);
+        event.put("args", args);
+        return event;
+    }
+
+    private static String processName() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            return Application.getProcessName();
+        }
+        return String.valueOf(Process.myPid());
+    }
+}
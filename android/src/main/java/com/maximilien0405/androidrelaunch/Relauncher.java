@@ -0,0 +1,229 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+public class Relauncher {
+
+    private static final String TAG = "Relauncher";
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Start the main activity of the app and journal the relaunch, returns true if the launch was
+    // handed to the main thread. May be called from any thread, startActivity is always issued from
+    // the main thread and the relaunch is counted and journaled only once it returned.
+    // detectedAt is the SystemClock.elapsedRealtimeNanos() at which the death was detected.
+    static boolean relaunch(Context context, byte path, long latencyMs, long detectedAt) {
+        return relaunch(context, path, latencyMs, detectedAt, null);
+    }
+
+    // Same, and when the launch was handed to the main thread, run done on it once the launch
+    // returned and was journaled, or failed
+    static boolean relaunch(Context context, byte path, long latencyMs, long detectedAt, final Runnable done) {
+        final RelaunchCoordinator coordinator = RelaunchCoordinator.get();
+        try {
+            int begin = coordinator.tryBegin(CrashLoopGuard.get(context), System.currentTimeMillis());
+            if (begin == RelaunchCoordinator.COALESCED) {
+                // Another path already detected this death and owns its launch
+                Log.d(TAG, "Relaunch already in flight, coalescing " + RelaunchJournal.pathName(path));
+                return false;
+            }
+            if (begin == RelaunchCoordinator.THROTTLED) {
+                Log.w(TAG, "Relaunch budget exhausted, cooling down");
+                return false;
+            }
+            
+            // How long the death went unnoticed, or how long the destroyed service waited
+            if (path == RelaunchJournal.PATH_SERVICE_DESTROYED) {
+                RelaunchTrace.record(RelaunchTrace.RELAUNCH_DELAY, detectedAt, SystemClock.elapsedRealtimeNanos(), detectedAt);
+            } else {
+                RelaunchTrace.record(RelaunchTrace.DETECTION, detectedAt - latencyMs * 1000000L, detectedAt, detectedAt);
+            }
+            
+            final Intent restartIntent;
+            long resolveAt = RelaunchTrace.begin(RelaunchTrace.RESOLVE_INTENT);
+            try {
+                restartIntent = LaunchTarget.get(context);
+            } finally {
+                RelaunchTrace.end(RelaunchTrace.RESOLVE_INTENT, resolveAt, detectedAt);
+            }
+            Runnable launch = () -> {
+                try {
+                    launch(context, restartIntent, coordinator, path, latencyMs, detectedAt);
+                } finally {
+                    if (done != null) done.run();
+                }
+            };
+            
+            // Only the launch itself goes through the main thread
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                launch.run();
+            } else {
+                mainHandler.post(launch);
+            }
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to relaunch app: " + e.getMessage(), e);
+            RelaunchStats.increment(RelaunchStats.FAILED_RELAUNCHES);
+            coordinator.failed();
+            return false;
+        }
+    }
+
+    // Issue the launch from the main thread, then count and journal it
+    private static void launch(Context context, Intent restartIntent, RelaunchCoordinator coordinator, byte path,
+            long latencyMs, long detectedAt) {
+        long startAt = RelaunchTrace.begin(RelaunchTrace.START_ACTIVITY);
+        try {
+            context.startActivity(restartIntent);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to start activity: " + e.getMessage(), e);
+            RelaunchStats.increment(RelaunchStats.FAILED_RELAUNCHES);
+            coordinator.failed();
+            return;
+        } finally {
+            RelaunchTrace.end(RelaunchTrace.START_ACTIVITY, startAt, detectedAt);
+        }
+        coordinator.launched();
+        RelaunchStats.relaunchLatency.recordNanos(SystemClock.elapsedRealtimeNanos() - detectedAt);
+        RelaunchStats.increment(RelaunchStats.RELAUNCHES);
+        // The process is coming back, do not answer the next check from cache
+        AppProcessChecker.invalidate();
+        // The relaunched app looks up the exit reason when it replays the journal, the
+        // system may not have recorded the exit yet
+        recordRelaunch(context, path, latencyMs, RelaunchJournal.EXIT_REASON_UNKNOWN, RelaunchJournal.TARGET_APP, detectedAt);
+        notifyPlugin();
+    }
+
+    // Kill this process and bring the app back, for a hang it cannot recover from. With
+    // scheduleLaunch the launch is handed to AlarmManager first, since in foreground mode
+    // nothing of ours outlives the process; otherwise the :watchdog process sees the Binder
+    // die and relaunches. Returns false without killing when relaunches are cooling down.
+    // detectedAt is the SystemClock.elapsedRealtimeNanos() at which the hang was detected.
+    static boolean killAndRelaunch(Context context, byte path, long latencyMs, boolean scheduleLaunch, long delayMs,
+            long detectedAt) {
+        try {
+            // A kill the relaunch cannot follow would leave the app dead. The :watchdog process
+            // spends the token when it relaunches, so without scheduleLaunch it is only checked.
+            long now = System.currentTimeMillis();
+            CrashLoopGuard guard = CrashLoopGuard.get(context);
+            if (scheduleLaunch ? !guard.tryAcquire(now) : guard.nextAcquireAt(now) > now) {
+                Log.w(TAG, "Relaunch budget exhausted, not killing the hung process");
+                RelaunchStats.increment(RelaunchStats.THROTTLED_RELAUNCHES);
+                return false;
+            }
+            
+            if (scheduleLaunch) {
+                PendingIntent launch = PendingIntent.getActivity(context, 0, LaunchTarget.get(context),
+                        PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+                AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+                alarmManager.set(AlarmManager.ELAPSED_REALTIME_WAKEUP, SystemClock.elapsedRealtime() + delayMs, launch);
+                recordRelaunch(context, path, latencyMs, RelaunchJournal.EXIT_REASON_UNKNOWN, RelaunchJournal.TARGET_APP, detectedAt);
+            }
+            
+            Log.w(TAG, "Killing the app process to recover from a hang");
+            Process.killProcess(Process.myPid());
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to kill and relaunch: " + e.getMessage(), e);
+            RelaunchStats.increment(RelaunchStats.FAILED_RELAUNCHES);
+            return false;
+        }
+    }
+
+    // Bring back an extra monitored target through its own component and relaunch budget.
+    // index is the position of the target in WatchdogConfig.targets.
+    static boolean relaunchTarget(Context context, int index, MonitorTarget target, long latencyMs, long detectedAt) {
+        return relaunchTarget(context, index, target, latencyMs, detectedAt, null);
+    }
+
+    // Same, and when the launch was handed to the main thread, run done on it once the launch
+    // returned and was journaled, or failed
+    static boolean relaunchTarget(Context context, int index, MonitorTarget target, long latencyMs, long detectedAt,
+            final Runnable done) {
+        try {
+            if (!CrashLoopGuard.forTarget(context, target.processName).tryAcquire(System.currentTimeMillis())) {
+                Log.w(TAG, "Relaunch budget of " + target.processName + " exhausted, cooling down");
+                RelaunchStats.increment(RelaunchStats.THROTTLED_RELAUNCHES);
+                return false;
+            }
+            
+            final Intent intent = target.getLaunchIntent(context);
+            if (intent == null) {
+                Log.e(TAG, "No launch intent for " + target.processName);
+                RelaunchStats.increment(RelaunchStats.FAILED_RELAUNCHES);
+                return false;
+            }
+            
+            Runnable launch = () -> {
+                try {
+                    launchTarget(context, intent, index, target, latencyMs, detectedAt);
+                } finally {
+                    if (done != null) done.run();
+                }
+            };
+            
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                launch.run();
+            } else {
+                mainHandler.post(launch);
+            }
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to relaunch " + target.processName + ": " + e.getMessage(), e);
+            RelaunchStats.increment(RelaunchStats.FAILED_RELAUNCHES);
+            return false;
+        }
+    }
+
+    // Start the target from the main thread, then count and journal it
+    private static void launchTarget(Context context, Intent intent, int index, MonitorTarget target, long latencyMs,
+            long detectedAt) {
+        try {
+            if (target.isService()) {
+                context.startService(intent);
+            } else {
+                context.startActivity(intent);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to start " + target.processName + ": " + e.getMessage(), e);
+            RelaunchStats.increment(RelaunchStats.FAILED_RELAUNCHES);
+            return;
+        }
+        RelaunchStats.relaunchLatency.recordNanos(SystemClock.elapsedRealtimeNanos() - detectedAt);
+        RelaunchStats.increment(RelaunchStats.TARGET_RELAUNCHES);
+        recordRelaunch(context, RelaunchJournal.PATH_TARGET, latencyMs, RelaunchJournal.EXIT_REASON_UNKNOWN,
+                (short) (index + 1), detectedAt);
+        notifyPlugin();
+    }
+
+    // Deliver the journaled relaunch right away when the plugin runs in this process
+    private static void notifyPlugin() {
+        try {
+            AndroidRelaunchPlugin plugin = AndroidRelaunchPlugin.getPluginInstance();
+            if (plugin != null) {
+                plugin.notifyRelaunch();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to notify relaunch: " + e.getMessage(), e);
+        }
+    }
+
+    // Journal the relaunch so the plugin can deliver it even if it is not loaded yet
+    private static void recordRelaunch(Context context, byte path, long latencyMs, byte exitReason, short target,
+            long detectedAt) {
+        try {
+            int latency = (int) Math.min(Math.max(latencyMs, 0), Integer.MAX_VALUE);
+            RelaunchJournal.get(context).append(System.currentTimeMillis(), latency, path, exitReason, target, detectedAt);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to journal relaunch: " + e.getMessage(), e);
+        }
+    }
+}
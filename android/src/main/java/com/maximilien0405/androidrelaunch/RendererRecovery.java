@@ -0,0 +1,99 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.app.Activity;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.webkit.RenderProcessGoneDetail;
+import android.webkit.WebView;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.WebViewListener;
+
+// Recovers from a dead WebView renderer in place: the dead WebView is dropped and the
+// activity recreated, which builds a fresh bridge and WebView in the still running process.
+// That takes a few hundred milliseconds instead of the seconds of a cold relaunch. A renderer
+// that keeps dying is left to crash the process, so the full relaunch and its crash-loop
+// guard take over.
+public class RendererRecovery extends WebViewListener {
+
+    private static final String TAG = "RendererRecovery";
+    private static final int MAX_RECOVERIES = 3;
+    private static final long RECOVERY_WINDOW = 60000;
+
+    // Receives the recovery once the new WebView finished loading
+    public interface Listener {
+        void onRendererRecovered(JSObject event);
+    }
+
+    // Survive the activity and plugin instances torn down by the recreation
+    private static final long[] recentRecoveries = new long[MAX_RECOVERIES];
+    private static int recoveryIndex = 0;
+    private static long goneAt = 0;
+    private static boolean didCrash;
+
+    private final Listener listener;
+
+    RendererRecovery(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Called on the main thread when the renderer of the bridge WebView died or was killed
+    @Override
+    public boolean onRenderProcessGone(WebView webView, RenderProcessGoneDetail detail) {
+        boolean crashed = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && detail != null && detail.didCrash();
+        Log.w(TAG, "WebView renderer " + (crashed ? "crashed" : "was killed"));
+        RelaunchStats.increment(RelaunchStats.RENDERER_GONE);
+
+        Activity activity = webView.getContext() instanceof Activity ? (Activity) webView.getContext() : null;
+        long now = SystemClock.elapsedRealtime();
+        if (activity == null || activity.isFinishing() || !allowRecovery(now)) {
+            Log.w(TAG, "Not recovering the renderer in place, letting the process die");
+            return false;
+        }
+
+        synchronized (RendererRecovery.class) {
+            goneAt = now;
+            didCrash = crashed;
+        }
+        // A WebView whose renderer is gone cannot be reused
+        ViewParent parent = webView.getParent();
+        if (parent instanceof ViewGroup) {
+            ((ViewGroup) parent).removeView(webView);
+        }
+        webView.destroy();
+        activity.recreate();
+        return true;
+    }
+
+    // Called when a page finished loading, completes a pending recovery
+    @Override
+    public void onPageLoaded(WebView webView) {
+        JSObject event;
+        synchronized (RendererRecovery.class) {
+            if (goneAt == 0) return;
+            long recoveryMs = SystemClock.elapsedRealtime() - goneAt;
+            event = new JSObject();
+            event.put("timestamp", System.currentTimeMillis());
+            event.put("recoveryMs", recoveryMs);
+            event.put("didCrash", didCrash);
+            goneAt = 0;
+            RelaunchStats.rendererRecovery.recordMicros(recoveryMs * 1000L);
+        }
+        RelaunchStats.increment(RelaunchStats.RENDERER_RECOVERIES);
+        listener.onRendererRecovered(event);
+    }
+
+    // At most MAX_RECOVERIES in place per RECOVERY_WINDOW
+    private static synchronized boolean allowRecovery(long now) {
+        long oldest = recentRecoveries[recoveryIndex];
+        if (oldest != 0 && now - oldest < RECOVERY_WINDOW) {
+            return false;
+        }
+        recentRecoveries[recoveryIndex] = now;
+        recoveryIndex = (recoveryIndex + 1) % MAX_RECOVERIES;
+        return true;
+    }
+}
@@ -0,0 +1,176 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Key-value snapshot of web app state handed over to the relaunched app. Updates only touch
+// memory, commit() writes the whole snapshot to a temp file and renames it over the old one,
+// so a process killed mid-write leaves the previous snapshot intact. The first read after a
+// relaunch maps the file and decodes it in a single pass.
+//
+// File layout, little endian:
+//   header  int magic, short version, short reserved, int entry count, int payload length,
+//           long saved at, int crc32 of the payload
+//   payload per entry: int key length, key bytes, int value length, value bytes (UTF-8)
+public class StateStore {
+
+    private static final int MAGIC = 0x41525354;
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 28;
+
+    private static StateStore instance;
+
+    private final File file;
+    private final Map<String, String> entries = new LinkedHashMap<>();
+    private boolean loaded = false;
+    private boolean dirty = false;
+    private long savedAt = 0;
+
+    StateStore(File file) {
+        this.file = file;
+    }
+
+    // Store in the app's files dir, shared by all callers in this process
+    static synchronized StateStore get(Context context) {
+        if (instance == null) {
+            instance = new StateStore(new File(new File(context.getFilesDir(), "androidrelaunch"), "state.bin"));
+        }
+        return instance;
+    }
+
+    // Current entries, the committed snapshot is mapped and decoded on first use
+    synchronized Map<String, String> read() throws IOException {
+        load();
+        return new LinkedHashMap<>(entries);
+    }
+
+    // Set or, with a null value, remove one key. Only memory is touched until commit().
+    synchronized void put(String key, String value) throws IOException {
+        load();
+        String previous = value != null ? entries.put(key, value) : entries.remove(key);
+        if (value == null ? previous != null : !value.equals(previous)) {
+            dirty = true;
+        }
+    }
+
+    // Drop every key
+    synchronized void clear() throws IOException {
+        load();
+        if (!entries.isEmpty()) {
+            entries.clear();
+            dirty = true;
+        }
+    }
+
+    // Epoch milliseconds of the last commit, 0 when there is no snapshot
+    synchronized long getSavedAt() throws IOException {
+        load();
+        return savedAt;
+    }
+
+    // Whether a non-empty snapshot was committed
+    synchronized boolean hasState() throws IOException {
+        load();
+        return savedAt != 0 && !entries.isEmpty();
+    }
+
+    // Write the snapshot if anything changed since the last commit
+    synchronized void commit() throws IOException {
+        if (!dirty) return;
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+
+        byte[][] encoded = new byte[entries.size() * 2][];
+        int payloadLength = 0;
+        int i = 0;
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            encoded[i] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            encoded[i + 1] = entry.getValue().getBytes(StandardCharsets.UTF_8);
+            payloadLength += 8 + encoded[i].length + encoded[i + 1].length;
+            i += 2;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payloadLength).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(HEADER_SIZE);
+        for (byte[] bytes : encoded) {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_SIZE, payloadLength);
+        long now = System.currentTimeMillis();
+        buffer.putInt(0, MAGIC);
+        buffer.putShort(4, VERSION);
+        buffer.putInt(8, entries.size());
+        buffer.putInt(12, payloadLength);
+        buffer.putLong(16, now);
+        buffer.putInt(24, (int) crc.getValue());
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(buffer.array());
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Cannot replace " + file);
+        }
+        savedAt = now;
+        dirty = false;
+    }
+
+    // Map the committed snapshot once, a missing or damaged file is an empty state
+    private void load() throws IOException {
+        if (loaded) return;
+        loaded = true;
+        if (!file.exists() || file.length() < HEADER_SIZE) return;
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            MappedByteBuffer map = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            int count = map.getInt(8);
+            int payloadLength = map.getInt(12);
+            if (map.getInt(0) != MAGIC || map.getShort(4) != VERSION || count < 0 || payloadLength < 0
+                    || HEADER_SIZE + (long) payloadLength > map.capacity()) {
+                return;
+            }
+
+            byte[] payload = new byte[payloadLength];
+            map.position(HEADER_SIZE);
+            map.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload, 0, payloadLength);
+            if ((int) crc.getValue() != map.getInt(24)) {
+                return;
+            }
+
+            ByteBuffer in = ByteBuffer.wrap(payload).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < count; i++) {
+                String key = readString(in);
+                String value = readString(in);
+                entries.put(key, value);
+            }
+            savedAt = map.getLong(16);
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+}
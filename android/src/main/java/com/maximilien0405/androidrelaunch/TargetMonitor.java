@@ -0,0 +1,95 @@
+package com.maximilien0405.androidrelaunch;
+
+import java.util.HashSet;
+import java.util.List;
+
+// Liveness of the extra monitored targets. Each target keeps its own heartbeat policy,
+// but every check resolves all due targets against one process list snapshot and a hash
+// set lookup, so watching more targets does not multiply the ActivityManager round trips.
+public class TargetMonitor {
+
+    // Receives targets found dead during a check
+    public interface Listener {
+
+        // target is gone, downMs is the time since it was last seen alive
+        void onTargetDied(int index, MonitorTarget target, long downMs);
+    }
+
+    private final ProcessProbe.Backend backend;
+    private final MonitorTarget[] targets;
+    private final HeartbeatPolicy[] policies;
+    private final long[] nextCheckAt;
+    private final long[] lastAliveAt;
+
+    // Reused for every snapshot, the steady state allocates nothing of its own
+    private final HashSet<String> running = new HashSet<>();
+
+    public TargetMonitor(ProcessProbe.Backend backend, List<MonitorTarget> targets, long now) {
+        this.backend = backend;
+        int n = targets.size();
+        this.targets = targets.toArray(new MonitorTarget[n]);
+        this.policies = new HeartbeatPolicy[n];
+        this.nextCheckAt = new long[n];
+        this.lastAliveAt = new long[n];
+        for (int i = 0; i < n; i++) {
+            policies[i] = this.targets[i].createHeartbeatPolicy();
+            nextCheckAt[i] = now + policies[i].getInterval();
+            lastAliveAt[i] = now;
+        }
+    }
+
+    public boolean isEmpty() {
+        return targets.length == 0;
+    }
+
+    // Check every target that is due, returns the delay until the next one is due
+    public long check(long now, Listener listener) {
+        if (targets.length == 0) {
+            return Long.MAX_VALUE;
+        }
+
+        boolean due = false;
+        for (int i = 0; i < targets.length; i++) {
+            if (nextCheckAt[i] <= now) {
+                due = true;
+                break;
+            }
+        }
+
+        if (due) {
+            running.clear();
+            boolean available = backend.snapshotRunning(running);
+            RelaunchStats.increment(RelaunchStats.TARGET_SNAPSHOTS);
+            for (int i = 0; i < targets.length; i++) {
+                if (nextCheckAt[i] > now) continue;
+                // Without a process list nothing can be told apart, treat everyone as alive
+                boolean killed = available && !running.contains(targets[i].processName);
+                if (killed) {
+                    listener.onTargetDied(i, targets[i], now - lastAliveAt[i]);
+                } else {
+                    lastAliveAt[i] = now;
+                }
+                policies[i].onCheck(now, killed);
+                nextCheckAt[i] = now + policies[i].getInterval();
+            }
+        }
+
+        return nextDelay(now);
+    }
+
+    // Check every target now whatever its interval, for callers that do not outlive one check
+    public void checkAll(long now, Listener listener) {
+        for (int i = 0; i < nextCheckAt.length; i++) {
+            nextCheckAt[i] = now;
+        }
+        check(now, listener);
+    }
+
+    private long nextDelay(long now) {
+        long next = Long.MAX_VALUE;
+        for (long at : nextCheckAt) {
+            next = Math.min(next, at);
+        }
+        return Math.max(next - now, 0);
+    }
+}
@@ -0,0 +1,281 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.content.ComponentName;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+
+import org.json.JSONObject;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Immutable set of watchdog settings from enable(options), persisted through ConfigStore
+public class WatchdogConfig {
+
+    static final long DEFAULT_HEARTBEAT_INTERVAL = 30000;
+    static final long DEFAULT_MIN_HEARTBEAT_INTERVAL = 5000;
+    static final long DEFAULT_MAX_HEARTBEAT_INTERVAL = 300000;
+    static final double DEFAULT_BACKOFF_FACTOR = 2.0;
+    static final long DEFAULT_KILL_WINDOW = 600000;
+    static final long DEFAULT_RELAUNCH_DELAY = 3000;
+    static final long DEFAULT_STALL_TIMEOUT = 30000;
+    static final long DEFAULT_BOOT_DELAY = 10000;
+    static final long DEFAULT_BOOT_JITTER = 10000;
+    static final long DEFAULT_HANG_TIMEOUT = 5000;
+    static final long DEFAULT_PROBE_INTERVAL = 5000;
+    static final long DEFAULT_PROBE_TIMEOUT = 10000;
+
+    static final String HANG_ACTION_REPORT = "report";
+    static final String HANG_ACTION_RELAUNCH = "relaunch";
+
+    static final String SCHEDULING_HANDLER = "handler";
+    static final String SCHEDULING_ALARM = "alarm";
+
+    static final String PROBE_ACTION_RELOAD = "reload";
+    static final String PROBE_ACTION_RELAUNCH = "relaunch";
+    static final String PROBE_ACTION_NONE = "none";
+
+    public final String mode;
+    public final String heartbeatPolicy;
+    public final long heartbeatInterval;
+    public final long minHeartbeatInterval;
+    public final long maxHeartbeatInterval;
+    public final double backoffFactor;
+    public final long killWindow;
+    public final long relaunchDelay;
+    public final long stallTimeout;
+    public final String launchComponent;
+    public final boolean startOnBoot;
+    public final long bootDelay;
+    public final long bootJitter;
+    // Extra processes watched next to the app, never null
+    public final List<MonitorTarget> targets;
+    public final long hangTimeout;
+    public final String hangAction;
+    public final String scheduling;
+    // JavaScript probe, off when probeInterval is 0
+    public final long probeInterval;
+    public final long probeTimeout;
+    public final String probeAction;
+
+    WatchdogConfig(String mode, String heartbeatPolicy, long heartbeatInterval, long minHeartbeatInterval,
+                   long maxHeartbeatInterval, double backoffFactor, long killWindow, long relaunchDelay,
+                   long stallTimeout, String launchComponent, boolean startOnBoot, long bootDelay, long bootJitter,
+                   List<MonitorTarget> targets, long hangTimeout, String hangAction, String scheduling,
+                   long probeInterval, long probeTimeout, String probeAction) {
+        this.mode = mode;
+        this.heartbeatPolicy = heartbeatPolicy;
+        this.heartbeatInterval = heartbeatInterval;
+        this.minHeartbeatInterval = minHeartbeatInterval;
+        this.maxHeartbeatInterval = maxHeartbeatInterval;
+        this.backoffFactor = backoffFactor;
+        this.killWindow = killWindow;
+        this.relaunchDelay = relaunchDelay;
+        this.stallTimeout = stallTimeout;
+        this.launchComponent = launchComponent;
+        this.startOnBoot = startOnBoot;
+        this.bootDelay = bootDelay;
+        this.bootJitter = bootJitter;
+        this.targets = Collections.unmodifiableList(new ArrayList<>(targets));
+        this.hangTimeout = hangTimeout;
+        this.hangAction = hangAction;
+        this.scheduling = scheduling;
+        this.probeInterval = probeInterval;
+        this.probeTimeout = probeTimeout;
+        this.probeAction = probeAction;
+    }
+
+    // Settings used when enable() is called without options
+    static WatchdogConfig defaults() {
+        return new WatchdogConfig(AndroidRelaunchPlugin.MODE_FOREGROUND, FixedHeartbeatPolicy.NAME,
+                DEFAULT_HEARTBEAT_INTERVAL, DEFAULT_MIN_HEARTBEAT_INTERVAL, DEFAULT_MAX_HEARTBEAT_INTERVAL,
+                DEFAULT_BACKOFF_FACTOR, DEFAULT_KILL_WINDOW, DEFAULT_RELAUNCH_DELAY, DEFAULT_STALL_TIMEOUT, null,
+                true, DEFAULT_BOOT_DELAY, DEFAULT_BOOT_JITTER, Collections.<MonitorTarget>emptyList(),
+                DEFAULT_HANG_TIMEOUT, HANG_ACTION_REPORT, SCHEDULING_HANDLER, 0, DEFAULT_PROBE_TIMEOUT,
+                PROBE_ACTION_RELOAD);
+    }
+
+    // Read settings from the options passed to enable(), throws on invalid values
+    static WatchdogConfig fromCall(PluginCall call, String appPackage) {
+        WatchdogConfig defaults = defaults();
+        String mode = call.getString("mode", defaults.mode);
+        long relaunchDelay = call.getLong("relaunchDelayMs", defaults.relaunchDelay);
+        long stallTimeout = call.getLong("stallTimeoutMs", defaults.stallTimeout);
+        String launchComponent = call.getString("launchComponent", defaults.launchComponent);
+        boolean startOnBoot = call.getBoolean("startOnBoot", defaults.startOnBoot);
+        long bootDelay = call.getLong("bootDelayMs", defaults.bootDelay);
+        long bootJitter = call.getLong("bootJitterMs", defaults.bootJitter);
+        long hangTimeout = call.getLong("hangTimeoutMs", defaults.hangTimeout);
+        String hangAction = call.getString("hangAction", defaults.hangAction);
+        String scheduling = call.getString("scheduling", defaults.scheduling);
+
+        String policy = defaults.heartbeatPolicy;
+        long interval = defaults.heartbeatInterval;
+        long minInterval = defaults.minHeartbeatInterval;
+        long maxInterval = defaults.maxHeartbeatInterval;
+        double backoff = defaults.backoffFactor;
+        long killWindow = defaults.killWindow;
+
+        long probeInterval = defaults.probeInterval;
+        long probeTimeout = defaults.probeTimeout;
+        String probeAction = defaults.probeAction;
+        // Probing starts with the probe option
+        JSObject probe = call.getObject("probe");
+        if (probe != null) {
+            probeInterval = probe.optLong("intervalMs", DEFAULT_PROBE_INTERVAL);
+            probeTimeout = probe.optLong("timeoutMs", probeTimeout);
+            probeAction = probe.optString("action", probeAction);
+        }
+
+        JSObject heartbeat = call.getObject("heartbeat");
+        if (heartbeat != null) {
+            policy = heartbeat.optString("policy", policy);
+            interval = heartbeat.optLong("intervalMs", interval);
+            minInterval = heartbeat.optLong("minIntervalMs", minInterval);
+            maxInterval = heartbeat.optLong("maxIntervalMs", maxInterval);
+            backoff = heartbeat.optDouble("backoffFactor", backoff);
+            killWindow = heartbeat.optLong("killWindowMs", killWindow);
+        }
+
+        if (!FixedHeartbeatPolicy.NAME.equals(policy) && !AdaptiveHeartbeatPolicy.NAME.equals(policy)) {
+            throw new IllegalArgumentException("Unknown heartbeat policy: " + policy);
+        }
+        if (interval <= 0 || minInterval <= 0 || maxInterval < minInterval) {
+            throw new IllegalArgumentException("Heartbeat intervals must be positive and minIntervalMs <= maxIntervalMs");
+        }
+        if (backoff < 1.0) {
+            throw new IllegalArgumentException("backoffFactor must be >= 1");
+        }
+        if (relaunchDelay < 0) {
+            throw new IllegalArgumentException("relaunchDelayMs must be >= 0");
+        }
+        if (stallTimeout < 0) {
+            throw new IllegalArgumentException("stallTimeoutMs must be >= 0");
+        }
+        if (launchComponent != null && ComponentName.unflattenFromString(launchComponent) == null) {
+            throw new IllegalArgumentException("launchComponent must look like 'com.example.app/.MainActivity'");
+        }
+        if (bootDelay < 0 || bootJitter < 0) {
+            throw new IllegalArgumentException("bootDelayMs and bootJitterMs must be >= 0");
+        }
+        if (hangTimeout < 0) {
+            throw new IllegalArgumentException("hangTimeoutMs must be >= 0");
+        }
+        if (!HANG_ACTION_REPORT.equals(hangAction) && !HANG_ACTION_RELAUNCH.equals(hangAction)) {
+            throw new IllegalArgumentException("Unknown hangAction: " + hangAction);
+        }
+        if (!SCHEDULING_HANDLER.equals(scheduling) && !SCHEDULING_ALARM.equals(scheduling)) {
+            throw new IllegalArgumentException("Unknown scheduling: " + scheduling);
+        }
+        if (probeInterval < 0 || probeTimeout <= 0) {
+            throw new IllegalArgumentException("probe intervalMs must be >= 0 and timeoutMs > 0");
+        }
+        if (!PROBE_ACTION_RELOAD.equals(probeAction) && !PROBE_ACTION_RELAUNCH.equals(probeAction)
+                && !PROBE_ACTION_NONE.equals(probeAction)) {
+            throw new IllegalArgumentException("Unknown probe action: " + probeAction);
+        }
+
+        // Targets inherit the heartbeat settings given above
+        WatchdogConfig base = new WatchdogConfig(mode, policy, interval, minInterval, maxInterval, backoff, killWindow,
+                relaunchDelay, stallTimeout, launchComponent, startOnBoot, bootDelay, bootJitter,
+                Collections.<MonitorTarget>emptyList(), hangTimeout, hangAction, scheduling, probeInterval, probeTimeout,
+                probeAction);
+        List<MonitorTarget> targets = new ArrayList<>();
+        Set<String> processNames = new HashSet<>();
+        JSArray targetOptions = call.getArray("targets");
+        if (targetOptions != null) {
+            for (int i = 0; i < targetOptions.length(); i++) {
+                JSONObject target = targetOptions.optJSONObject(i);
+                if (target == null) {
+                    throw new IllegalArgumentException("targets must be a list of objects");
+                }
+                MonitorTarget monitorTarget = MonitorTarget.fromJSON(target, appPackage, base);
+                if (monitorTarget.processName.equals(appPackage) || !processNames.add(monitorTarget.processName)) {
+                    throw new IllegalArgumentException("Process " + monitorTarget.processName + " is already monitored");
+                }
+                targets.add(monitorTarget);
+            }
+        }
+
+        return new WatchdogConfig(mode, policy, interval, minInterval, maxInterval, backoff, killWindow, relaunchDelay,
+                stallTimeout, launchComponent, startOnBoot, bootDelay, bootJitter, targets, hangTimeout, hangAction,
+                scheduling, probeInterval, probeTimeout, probeAction);
+    }
+
+    // Read settings stored by writeTo()
+    static WatchdogConfig readFrom(DataInputStream in) throws IOException {
+        String mode = in.readUTF();
+        String heartbeatPolicy = in.readUTF();
+        long heartbeatInterval = in.readLong();
+        long minHeartbeatInterval = in.readLong();
+        long maxHeartbeatInterval = in.readLong();
+        double backoffFactor = in.readDouble();
+        long killWindow = in.readLong();
+        long relaunchDelay = in.readLong();
+        long stallTimeout = in.readLong();
+        String launchComponent = in.readBoolean() ? in.readUTF() : null;
+        boolean startOnBoot = in.readBoolean();
+        long bootDelay = in.readLong();
+        long bootJitter = in.readLong();
+        List<MonitorTarget> targets = new ArrayList<>();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            targets.add(MonitorTarget.readFrom(in));
+        }
+        long hangTimeout = in.readLong();
+        String hangAction = in.readUTF();
+        String scheduling = in.readUTF();
+        long probeInterval = in.readLong();
+        long probeTimeout = in.readLong();
+        String probeAction = in.readUTF();
+        return new WatchdogConfig(mode, heartbeatPolicy, heartbeatInterval, minHeartbeatInterval, maxHeartbeatInterval,
+                backoffFactor, killWindow, relaunchDelay, stallTimeout, launchComponent, startOnBoot, bootDelay, bootJitter,
+                targets, hangTimeout, hangAction, scheduling, probeInterval, probeTimeout, probeAction);
+    }
+
+    // Serialize settings for the config file
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeUTF(mode);
+        out.writeUTF(heartbeatPolicy);
+        out.writeLong(heartbeatInterval);
+        out.writeLong(minHeartbeatInterval);
+        out.writeLong(maxHeartbeatInterval);
+        out.writeDouble(backoffFactor);
+        out.writeLong(killWindow);
+        out.writeLong(relaunchDelay);
+        out.writeLong(stallTimeout);
+        out.writeBoolean(launchComponent != null);
+        if (launchComponent != null) {
+            out.writeUTF(launchComponent);
+        }
+        out.writeBoolean(startOnBoot);
+        out.writeLong(bootDelay);
+        out.writeLong(bootJitter);
+        out.writeInt(targets.size());
+        for (MonitorTarget target : targets) {
+            target.writeTo(out);
+        }
+        out.writeLong(hangTimeout);
+        out.writeUTF(hangAction);
+        out.writeUTF(scheduling);
+        out.writeLong(probeInterval);
+        out.writeLong(probeTimeout);
+        out.writeUTF(probeAction);
+    }
+
+    // Build a fresh heartbeat policy for these settings
+    HeartbeatPolicy createHeartbeatPolicy() {
+        if (AdaptiveHeartbeatPolicy.NAME.equals(heartbeatPolicy)) {
+            return new AdaptiveHeartbeatPolicy(heartbeatInterval, minHeartbeatInterval, maxHeartbeatInterval, backoffFactor, killWindow);
+        }
+        return new FixedHeartbeatPolicy(heartbeatInterval);
+    }
+}
@@ -0,0 +1,348 @@
+package com.maximilien0405.androidrelaunch;
+
+import android.app.Service;
+import android.content.BroadcastReceiver;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Process;
+import android.os.RemoteException;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+// Runs in the separate ":watchdog" process and relaunches the app as soon as the
+// Binder it holds to the app process dies, instead of polling for the process
+public class WatchdogService extends Service {
+
+    private static final String TAG = "WatchdogService";
+    private static final int NOTIFICATION_ID = 2;
+    private static final long WAKE_LOCK_TIMEOUT = 10000;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable stallCheck = this::checkStall;
+    private final Runnable targetCheck = this::checkTargets;
+    private final Runnable footprintSample = this::sampleFootprint;
+    private final Runnable relaunchRetry = this::retryRelaunch;
+    private final Runnable launchConfirm = this::confirmLaunch;
+    private final Runnable start = this::start;
+    // Last slot stamp seen by the stall check, and the uptime it was first seen at
+    private long stallBeat;
+    private long stallBeatSeenAt;
+    private TargetMonitor targetMonitor;
+    private BoundedWakeLock wakeLock;
+    private WatchdogConfig config = WatchdogConfig.defaults();
+    private HeartbeatSlot heartbeatSlot;
+    private BroadcastReceiver packageReceiver;
+    private IBinder appBinder;
+    private boolean isBound = false;
+    private boolean isDestroyed = false;
+
+    private final IBinder.DeathRecipient deathRecipient = new IBinder.DeathRecipient() {
+        // Called on a Binder thread as soon as the app process dies
+        @Override
+        public void binderDied() {
+            final long detectedAt = SystemClock.elapsedRealtimeNanos();
+            Log.d(TAG, "App process died, relaunching");
+            // Stay awake from the death notification until the relaunch was issued
+            wakeLock.acquire(WAKE_LOCK_TIMEOUT);
+            handler.post(() -> onAppDied(detectedAt));
+        }
+    };
+
+    private final ServiceConnection connection = new ServiceConnection() {
+        // Link to the app process Binder once connected
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder service) {
+            linkToApp(service);
+        }
+
+        // Death is handled by the DeathRecipient, nothing to do here
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            Log.d(TAG, "App process disconnected");
+        }
+    };
+
+    // Initialize watchdog and bind to the app process
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        try {
+            RelaunchNotification.createChannel(this);
+            wakeLock = new BoundedWakeLock(this, "AndroidRelaunch:watchdog");
+            heartbeatSlot = HeartbeatSlot.openForRead(HeartbeatSlot.file(this));
+            packageReceiver = LaunchTarget.registerInvalidation(this);
+            Log.d(TAG, "WatchdogService created successfully");
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to create watchdog: " + e.getMessage(), e);
+            stopSelf();
+        }
+    }
+
+    // Handle service start command with sticky restart behavior
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        try {
+            // Immediately start foreground to avoid timeout
+            startForeground(NOTIFICATION_ID, RelaunchNotification.build(this));
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to start foreground in onStartCommand: " + e.getMessage(), e);
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+        
+        // A start at boot waits out the boot delay before binding, which starts the app process
+        long delay = intent != null ? intent.getLongExtra(AndroidRelaunchPlugin.EXTRA_START_DELAY, 0) : 0;
+        handler.removeCallbacks(start);
+        handler.postDelayed(start, delay);
+        return START_STICKY;
+    }
+
+    // Bind to the app and start the checks
+    private void start() {
+        if (isDestroyed) return;
+        // enable() persists the settings from the app process before starting us, re-read them
+        config = ConfigStore.reload(this).config;
+        LaunchTarget.setComponent(config.launchComponent);
+        LaunchTarget.warmUp(this);
+        if (!isBound) {
+            bindToApp();
+        }
+        scheduleStallCheck();
+        startTargetChecks();
+        handler.removeCallbacks(footprintSample);
+        handler.postDelayed(footprintSample, ModeFootprint.SAMPLE_INTERVAL);
+    }
+
+    // Unlink and unbind so a deliberate stop does not trigger a relaunch
+    @Override
+    public void onDestroy() {
+        isDestroyed = true;
+        unlinkFromApp();
+        if (isBound) {
+            try {
+                unbindService(connection);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to unbind from app: " + e.getMessage(), e);
+            }
+            isBound = false;
+        }
+        handler.removeCallbacksAndMessages(null);
+        if (packageReceiver != null) {
+            unregisterReceiver(packageReceiver);
+            packageReceiver = null;
+        }
+        flushStats();
+        if (heartbeatSlot != null) {
+            heartbeatSlot.close();
+        }
+        super.onDestroy();
+    }
+
+    // Service binding not supported
+    @Nullable
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    // Bind to the anchor service in the app process, creating it if needed
+    private void bindToApp() {
+        Intent intent = new Intent(this, AppBinderService.class);
+        isBound = bindService(intent, connection, Context.BIND_AUTO_CREATE);
+        if (!isBound) {
+            Log.e(TAG, "Could not bind to app process");
+        }
+    }
+
+    // Register for death notifications on the app process Binder
+    private void linkToApp(IBinder service) {
+        unlinkFromApp();
+        try {
+            service.linkToDeath(deathRecipient, 0);
+            appBinder = service;
+            Log.d(TAG, "Linked to app process");
+        } catch (RemoteException e) {
+            // The process died before we could link
+            Log.w(TAG, "App process already dead while linking");
+            final long detectedAt = SystemClock.elapsedRealtimeNanos();
+            handler.post(() -> onAppDied(detectedAt));
+        }
+    }
+
+    // Drop the death registration, if any
+    private void unlinkFromApp() {
+        if (appBinder != null) {
+            try {
+                appBinder.unlinkToDeath(deathRecipient, 0);
+            } catch (Exception e) {
+                // Binder already dead, nothing to unlink
+            }
+            appBinder = null;
+        }
+    }
+
+    // Poll the heartbeat slot at half the stall timeout, a pure memory read
+    private void scheduleStallCheck() {
+        handler.removeCallbacks(stallCheck);
+        if (config.stallTimeout > 0 && !isDestroyed) {
+            handler.postDelayed(stallCheck, config.stallTimeout / 2);
+        }
+    }
+
+    // Kill an app process whose main looper stopped beating, Binder death then relaunches it.
+    // The stamp is compared with the one of earlier checks in uptime rather than against
+    // elapsed realtime: the beat and these checks are uptime based handler posts, after a
+    // deep sleep the slot is old but the app did not miss a beat.
+    private void checkStall() {
+        try {
+            if (appBinder != null && heartbeatSlot.read() == HeartbeatSlot.RESULT_OK
+                    && heartbeatSlot.getState() == HeartbeatSlot.STATE_ACTIVE) {
+                long beat = heartbeatSlot.getTimestamp();
+                long now = SystemClock.uptimeMillis();
+                if (beat != stallBeat) {
+                    stallBeat = beat;
+                    stallBeatSeenAt = now;
+                } else if (now - stallBeatSeenAt >= config.stallTimeout) {
+                    int pid = heartbeatSlot.getPid();
+                    if (pid > 0 && pid != Process.myPid()) {
+                        Log.w(TAG, "App main thread stalled for more than " + config.stallTimeout + " ms, killing pid " + pid);
+                        RelaunchStats.increment(RelaunchStats.STALL_KILLS);
+                        Process.killProcess(pid);
+                    }
+                    stallBeat = 0;
+                }
+            } else {
+                stallBeat = 0;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error in stall check: " + e.getMessage(), e);
+        }
+        scheduleStallCheck();
+    }
+
+    // Extra targets have no Binder to link to and are polled, all of them with one process list snapshot
+    private void startTargetChecks() {
+        handler.removeCallbacks(targetCheck);
+        targetMonitor = new TargetMonitor(new AndroidProcessBackend(getApplicationContext()), config.targets,
+                SystemClock.elapsedRealtime());
+        if (!targetMonitor.isEmpty()) {
+            handler.postDelayed(targetCheck, targetMonitor.check(SystemClock.elapsedRealtime(), this::relaunchTarget));
+        }
+    }
+
+    private void checkTargets() {
+        try {
+            if (isDestroyed) return;
+            handler.postDelayed(targetCheck, targetMonitor.check(SystemClock.elapsedRealtime(), this::relaunchTarget));
+        } catch (Exception e) {
+            Log.e(TAG, "Error in target check: " + e.getMessage(), e);
+        }
+    }
+
+    // Relaunch a monitored target found dead
+    private void relaunchTarget(int index, MonitorTarget target, long downMs) {
+        Log.d(TAG, "Target " + target.processName + " is not running, relaunching");
+        Relauncher.relaunchTarget(getApplicationContext(), index, target, downMs, SystemClock.elapsedRealtimeNanos());
+        flushStats();
+    }
+
+    // Relaunch the app after its process died
+    private void onAppDied(long detectedAt) {
+        appBinder = null;
+        try {
+            if (isDestroyed) return;
+            RelaunchStats.increment(RelaunchStats.BINDER_DEATHS);
+            relaunchApp(detectedAt);
+        } finally {
+            wakeLock.release();
+        }
+    }
+
+    // A Binder dies only once, so a relaunch refused by the crash-loop guard is retried here
+    // once the guard allows the next one
+    private void relaunchApp(long detectedAt) {
+        handler.removeCallbacks(relaunchRetry);
+        Context context = getApplicationContext();
+        if (Relauncher.relaunch(context, RelaunchJournal.PATH_BINDER_DEATH, timeSinceLastBeat(), detectedAt)) {
+            handler.removeCallbacks(launchConfirm);
+            handler.postDelayed(launchConfirm, AndroidRelaunchPlugin.SLOT_INTERVAL);
+        } else {
+            try {
+                long now = System.currentTimeMillis();
+                long retryAt = CrashLoopGuard.get(context).nextAcquireAt(now);
+                if (retryAt > now) {
+                    Log.d(TAG, "Retrying the relaunch in " + (retryAt - now) + " ms");
+                    handler.postDelayed(relaunchRetry, retryAt - now);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to read relaunch budget: " + e.getMessage(), e);
+            }
+        }
+        flushStats();
+    }
+
+    // The cool-down is over, relaunch unless the app was brought back in the meantime
+    private void retryRelaunch() {
+        if (isDestroyed || isAppActive()) return;
+        wakeLock.acquire(WAKE_LOCK_TIMEOUT);
+        try {
+            relaunchApp(SystemClock.elapsedRealtimeNanos());
+        } finally {
+            wakeLock.release();
+        }
+    }
+
+    // Complete the launch once the plugin of the launched app beats the slot. Binding back to
+    // the app proves nothing, BIND_AUTO_CREATE restarts its process without any activity.
+    private void confirmLaunch() {
+        if (isDestroyed) return;
+        RelaunchCoordinator coordinator = RelaunchCoordinator.get();
+        if (coordinator.getState() != RelaunchCoordinator.LAUNCHING || coordinator.isOverdue()) return;
+        if (heartbeatSlot != null && heartbeatSlot.read() == HeartbeatSlot.RESULT_OK
+                && heartbeatSlot.getState() == HeartbeatSlot.STATE_ACTIVE
+                && coordinator.confirmBeat(heartbeatSlot.getTimestamp())) {
+            return;
+        }
+        handler.postDelayed(launchConfirm, AndroidRelaunchPlugin.SLOT_INTERVAL);
+    }
+
+    // The plugin of a running app beats the slot. The linked Binder alone does not tell:
+    // BIND_AUTO_CREATE restarts the app process without any activity.
+    private boolean isAppActive() {
+        return heartbeatSlot != null && heartbeatSlot.read() == HeartbeatSlot.RESULT_OK
+                && heartbeatSlot.getState() == HeartbeatSlot.STATE_ACTIVE
+                && heartbeatSlot.isFresh(SystemClock.elapsedRealtimeNanos(), 3 * AndroidRelaunchPlugin.SLOT_INTERVAL * 1000000L);
+    }
+
+    // Sample the PSS of the :watchdog process
+    private void sampleFootprint() {
+        ModeFootprint.get(this).sample(ModeFootprint.OWN_PROCESS, ModeFootprint.WATCHDOG);
+        handler.postDelayed(footprintSample, ModeFootprint.SAMPLE_INTERVAL);
+    }
+
+    // Persist this process' stats so the plugin in the app process can report them
+    private void flushStats() {
+        try {
+            RelaunchStats.writeTo(RelaunchStats.watchdogFile(this));
+            RelaunchTrace.writeTo(RelaunchTrace.file(this, AndroidRelaunchPlugin.MODE_WATCHDOG));
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to persist stats: " + e.getMessage(), e);
+        }
+    }
+
+    // Time since the app last stamped the heartbeat slot, an upper bound on detection latency
+    private long timeSinceLastBeat() {
+        if (heartbeatSlot == null || heartbeatSlot.read() != HeartbeatSlot.RESULT_OK
+                || heartbeatSlot.getState() != HeartbeatSlot.STATE_ACTIVE) {
+            return 0;
+        }
+        return (SystemClock.elapsedRealtimeNanos() - heartbeatSlot.getTimestamp()) / 1000000L;
+    }
+}
@@ -0,0 +1,126 @@
+package com.maximilien0405.androidrelaunch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+// In-memory process table standing in for ActivityManager and /proc on the JVM.
+// findPid and hasExited pay a simulated Binder round trip and, like the real calls,
+// allocate the list they return.
+class FakeProcessBackend implements ProcessProbe.Backend {
+
+    static final int MAX_PID = 32768;
+
+    // Entry of the fake process list, mirrors RunningAppProcessInfo
+    static class ProcessInfo {
+        final String processName;
+        final int pid;
+
+        ProcessInfo(String processName, int pid) {
+            this.processName = processName;
+            this.pid = pid;
+        }
+    }
+
+    private final List<ProcessInfo> table = new ArrayList<>();
+    private final boolean[] alive = new boolean[MAX_PID];
+    private final long binderLatencyNanos;
+    private final boolean procReadable;
+    private final boolean exitReasonsAvailable;
+
+    int binderCalls;
+
+    FakeProcessBackend(int otherProcesses, long binderLatencyNanos, boolean procReadable, boolean exitReasonsAvailable) {
+        this.binderLatencyNanos = binderLatencyNanos;
+        this.procReadable = procReadable;
+        this.exitReasonsAvailable = exitReasonsAvailable;
+        for (int i = 0; i < otherProcesses; i++) {
+            start("com.example.other" + i, 20000 + i);
+        }
+    }
+
+    // Add a running process
+    void start(String processName, int pid) {
+        table.add(new ProcessInfo(processName, pid));
+        alive[pid] = true;
+    }
+
+    // Remove a process as if it was killed
+    void kill(int pid) {
+        alive[pid] = false;
+        for (int i = table.size() - 1; i >= 0; i--) {
+            if (table.get(i).pid == pid) table.remove(i);
+        }
+    }
+
+    @Override
+    public int findPid(String processName) {
+        List<ProcessInfo> snapshot = binderCall();
+        for (int i = 0, n = snapshot.size(); i < n; i++) {
+            ProcessInfo process = snapshot.get(i);
+            if (processName.equals(process.processName)) {
+                return process.pid;
+            }
+        }
+        return ProcessProbe.PID_UNKNOWN;
+    }
+
+    @Override
+    public boolean canReadProc() {
+        return procReadable;
+    }
+
+    @Override
+    public boolean isPidAlive(int pid) {
+        return alive[pid];
+    }
+
+    @Override
+    public boolean canQueryExitReasons() {
+        return exitReasonsAvailable;
+    }
+
+    // At most one exit record comes back for a single pid
+    @Override
+    public boolean hasExited(String packageName, int pid) {
+        roundTrip();
+        List<ProcessInfo> exits = new ArrayList<>(1);
+        if (!alive[pid]) exits.add(new ProcessInfo(packageName, pid));
+        return !exits.isEmpty();
+    }
+
+    @Override
+    public boolean isInForeground(String packageName) {
+        roundTrip();
+        return false;
+    }
+
+    @Override
+    public boolean snapshotRunning(Set<String> out) {
+        List<ProcessInfo> snapshot = binderCall();
+        for (int i = 0, n = snapshot.size(); i < n; i++) {
+            out.add(snapshot.get(i).processName);
+        }
+        return true;
+    }
+
+    // Spin for the duration of a simulated Binder round trip
+    void roundTrip() {
+        binderCalls++;
+        long deadline = System.nanoTime() + binderLatencyNanos;
+        while (System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    // Round trip returning a copy of the table, as unmarshalling would
+    private List<ProcessInfo> binderCall() {
+        roundTrip();
+        List<ProcessInfo> copy = new ArrayList<>(table.size());
+        for (int i = 0, n = table.size(); i < n; i++) {
+            ProcessInfo process = table.get(i);
+            copy.add(new ProcessInfo(new String(process.processName), process.pid));
+        }
+        return copy;
+    }
+}
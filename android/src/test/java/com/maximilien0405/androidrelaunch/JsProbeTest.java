@@ -0,0 +1,88 @@
+package com.maximilien0405.androidrelaunch;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Probe protocol of {@link JsProbe} on a hand-driven clock: one probe in flight, one report
+ * per outage, and re-arming once the page acks again.
+ */
+public class JsProbeTest {
+
+    private static final long INTERVAL = 5000;
+    private static final long TIMEOUT = 10000;
+
+    private long now = 1;
+    private final List<Long> sent = new ArrayList<>();
+    private final List<Long> outages = new ArrayList<>();
+
+    private final JsProbe probe = new JsProbe(() -> now * 1000000L, TIMEOUT, new JsProbe.Listener() {
+        @Override
+        public void sendProbe(long id) {
+            sent.add(id);
+        }
+
+        @Override
+        public void onUnresponsive(long blockedMs) {
+            outages.add(blockedMs);
+        }
+    });
+
+    private void tickAfter(long delayMs) {
+        now += delayMs;
+        probe.tick();
+    }
+
+    @Test
+    public void healthyPageGetsOneProbePerInterval() {
+        long rtts = RelaunchStats.probeRtt.getCount();
+        for (int i = 0; i < 10; i++) {
+            tickAfter(INTERVAL);
+            now += 3;
+            probe.ack(sent.get(sent.size() - 1));
+        }
+        assertEquals(10, sent.size());
+        assertEquals(0, outages.size());
+        assertEquals(rtts + 10, RelaunchStats.probeRtt.getCount());
+    }
+
+    @Test
+    public void frozenPageIsReportedOncePerOutage() {
+        tickAfter(INTERVAL);
+        // Still within the timeout, nothing more is sent
+        tickAfter(INTERVAL);
+        assertEquals(1, sent.size());
+
+        tickAfter(INTERVAL);
+        tickAfter(INTERVAL);
+        tickAfter(INTERVAL);
+        assertEquals(1, outages.size());
+        assertEquals(2 * INTERVAL, (long) outages.get(0));
+        // After the timeout one probe per interval keeps going out for a reloaded page
+        assertEquals(4, sent.size());
+
+        // A late ack of an old probe re-arms the probe
+        long recoveries = RelaunchStats.get(RelaunchStats.PROBE_RECOVERIES);
+        probe.ack(sent.get(0));
+        assertEquals(recoveries + 1, RelaunchStats.get(RelaunchStats.PROBE_RECOVERIES));
+
+        tickAfter(INTERVAL);
+        tickAfter(INTERVAL);
+        tickAfter(INTERVAL);
+        assertEquals(2, outages.size());
+    }
+
+    @Test
+    public void staleAcksAreIgnored() {
+        tickAfter(INTERVAL);
+        probe.ack(sent.get(0));
+        long rtts = RelaunchStats.probeRtt.getCount();
+        probe.ack(sent.get(0));
+        probe.ack(42);
+        assertEquals(rtts, RelaunchStats.probeRtt.getCount());
+    }
+}
@@ -0,0 +1,172 @@
+package com.maximilien0405.androidrelaunch;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Test;
+
+/**
+ * Per-check cost of each ProcessProbe strategy and of launch target resolution, measured
+ * on the host JVM against {@link FakeProcessBackend}.
+ *
+ * The allocation checks always run and guard the allocation-free paths. The timing report
+ * only runs with {@code ./gradlew test -Pbenchmark=true --tests '*Benchmark'}.
+ */
+public class ProcessProbeBenchmark {
+
+    private static final String PACKAGE = "com.example.app";
+    private static final int APP_PID = 4242;
+    private static final boolean ENABLED = Boolean.getBoolean("androidrelaunch.benchmark");
+
+    private static final int[] PROCESS_COUNTS = { 8, 64, 256 };
+    private static final long[] BINDER_LATENCIES_NANOS = { 0, 50000, 200000 };
+
+    // Results of every measured op end up here, so the JIT cannot drop the op as dead code
+    private static volatile int blackhole;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    public void cachedCheckDoesNotAllocate() {
+        ProcessProbe probe = probe(new FakeProcessBackend(64, 0, true, false), 60000);
+        assertTrue(probe.isAlive());
+        Result result = measure(probe::isAlive, 200000);
+        assertEquals(ProcessProbe.Strategy.CACHE, probe.getLastStrategy());
+        assertTrue("cached check allocated " + result.bytesPerOp + " bytes/op", result.bytesPerOp < 1);
+    }
+
+    @Test
+    public void procCheckDoesNotAllocateOrCallBinder() {
+        FakeProcessBackend backend = new FakeProcessBackend(64, 0, true, false);
+        ProcessProbe probe = probe(backend, 0);
+        assertTrue(probe.isAlive());
+        int callsAfterResolve = backend.binderCalls;
+        Result result = measure(probe::isAlive, 200000);
+        assertEquals(ProcessProbe.Strategy.PROC, probe.getLastStrategy());
+        assertEquals(callsAfterResolve, backend.binderCalls);
+        assertTrue("proc check allocated " + result.bytesPerOp + " bytes/op", result.bytesPerOp < 1);
+    }
+
+    @Test
+    public void exitReasonsCheckSkipsProcessList() {
+        FakeProcessBackend backend = new FakeProcessBackend(64, 0, false, true);
+        ProcessProbe probe = probe(backend, 0);
+        assertTrue(probe.isAlive());
+        assertTrue(probe.isAlive());
+        assertEquals(ProcessProbe.Strategy.EXIT_REASONS, probe.getLastStrategy());
+
+        backend.kill(APP_PID);
+        assertFalse(probe.isAlive());
+        assertEquals(ProcessProbe.PID_UNKNOWN, probe.getPid());
+    }
+
+    @Test
+    public void benchmarkStrategies() {
+        assumeTrue("Run with -Pbenchmark=true", ENABLED);
+        System.out.println(String.format("%-20s %9s %10s %12s %12s", "strategy", "processes", "binder us", "ns/op", "bytes/op"));
+        for (int processes : PROCESS_COUNTS) {
+            for (long latency : BINDER_LATENCIES_NANOS) {
+                report("cache", processes, latency, probe(new FakeProcessBackend(processes, latency, true, false), 60000));
+                report("proc", processes, latency, probe(new FakeProcessBackend(processes, latency, true, false), 0));
+                report("exit_reasons", processes, latency, probe(new FakeProcessBackend(processes, latency, false, true), 0));
+                report("running_processes", processes, latency, probe(new FakeProcessBackend(processes, latency, false, false), 0));
+            }
+        }
+    }
+
+    @Test
+    public void resolvedLaunchTargetSkipsPackageManager() {
+        FakeProcessBackend binder = new FakeProcessBackend(0, 0, true, false);
+        LaunchTarget.Resolver packageManager = packageManager(binder);
+        LaunchTarget.invalidate();
+        try {
+            assertEquals(PACKAGE + "/" + PACKAGE + ".MainActivity", LaunchTarget.resolve(packageManager, PACKAGE));
+            Result result = measure(() -> LaunchTarget.resolve(packageManager, PACKAGE) != null, 200000);
+            assertEquals(1, binder.binderCalls);
+            assertTrue("cached launch target allocated " + result.bytesPerOp + " bytes/op", result.bytesPerOp < 1);
+        } finally {
+            LaunchTarget.invalidate();
+        }
+    }
+
+    @Test
+    public void benchmarkLaunchResolution() {
+        assumeTrue("Run with -Pbenchmark=true", ENABLED);
+        System.out.println(String.format("%-20s %10s %12s %12s", "launch target", "binder us", "ns/op", "bytes/op"));
+        try {
+            for (long latency : BINDER_LATENCIES_NANOS) {
+                // Every op pays the getLaunchIntentForPackage round trip of a cold resolution
+                LaunchTarget.Resolver packageManager = packageManager(new FakeProcessBackend(0, latency, true, false));
+                Result resolved = measure(() -> {
+                    LaunchTarget.invalidate();
+                    return LaunchTarget.resolve(packageManager, PACKAGE) != null;
+                }, iterations(latency));
+                System.out.println(String.format("%-20s %10d %12.0f %12.1f", "resolve", latency / 1000, resolved.nanosPerOp, resolved.bytesPerOp));
+            }
+            LaunchTarget.Resolver packageManager = packageManager(new FakeProcessBackend(0, 0, true, false));
+            Result cached = measure(() -> LaunchTarget.resolve(packageManager, PACKAGE) != null, 200000);
+            System.out.println(String.format("%-20s %10s %12.0f %12.1f", "cached", "-", cached.nanosPerOp, cached.bytesPerOp));
+        } finally {
+            LaunchTarget.invalidate();
+        }
+    }
+
+    // PackageManager without a launcher activity: a round trip, then the MainActivity fallback
+    private static LaunchTarget.Resolver packageManager(FakeProcessBackend binder) {
+        return packageName -> {
+            binder.roundTrip();
+            return null;
+        };
+    }
+
+    private static ProcessProbe probe(FakeProcessBackend backend, long cacheTtlMs) {
+        backend.start(PACKAGE, APP_PID);
+        return new ProcessProbe(backend, PACKAGE, PACKAGE, cacheTtlMs);
+    }
+
+    private static void report(String name, int processes, long latency, ProcessProbe probe) {
+        Result result = measure(probe::isAlive, iterations(latency));
+        System.out.println(String.format("%-20s %9d %10d %12.0f %12.1f", name, processes, latency / 1000, result.nanosPerOp, result.bytesPerOp));
+    }
+
+    // Fewer iterations when every call spins for a simulated round trip
+    private static int iterations(long binderLatencyNanos) {
+        return binderLatencyNanos == 0 ? 200000 : 2000;
+    }
+
+    // Warm up, then time the operation and count the bytes it allocates on this thread
+    private static Result measure(BooleanSupplier op, int iterations) {
+        blackhole += consume(op, iterations);
+        long threadId = Thread.currentThread().getId();
+        long bytesBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        int results = consume(op, iterations);
+        long elapsed = System.nanoTime() - start;
+        long bytes = THREADS.getThreadAllocatedBytes(threadId) - bytesBefore;
+        blackhole += results;
+        return new Result(elapsed / (double) iterations, bytes / (double) iterations);
+    }
+
+    // Run the operation, counting its true results so each one is used
+    private static int consume(BooleanSupplier op, int iterations) {
+        int results = 0;
+        for (int i = 0; i < iterations; i++) {
+            if (op.getAsBoolean()) results++;
+        }
+        return results;
+    }
+
+    private static class Result {
+        final double nanosPerOp;
+        final double bytesPerOp;
+
+        Result(double nanosPerOp, double bytesPerOp) {
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.maximilien0405.androidrelaunch;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Kill, hang and crash-loop scenarios replayed against the heartbeat logic of
+ * KeepAliveService ({@link HeartbeatMonitor}), the {@link ProcessProbe} behind
+ * AppProcessChecker, the {@link RelaunchCoordinator} and the {@link CrashLoopGuard} that
+ * Relauncher puts in front of every launch, on a virtual clock and a scripted
+ * {@link FakeProcessBackend}. Each scenario runs a thousand seeded one-hour runs. The
+ * distributions of detection and relaunch latency next to the duplicate relaunches and
+ * missed kills are only printed with {@code ./gradlew test -Pbenchmark=true}.
+ */
+public class RelaunchSimulation {
+
+    private static final String PACKAGE = "com.example.app";
+    private static final int RUNS = 1000;
+    private static final long DURATION = 3600000;
+    // No new incidents near the end, so every kill has time to be answered
+    private static final long QUIET_TAIL = 600000;
+    private static final long SLOT_STALE = 3 * AndroidRelaunchPlugin.SLOT_INTERVAL;
+    private static final long CACHE_TTL = 500;
+    private static final long RELAUNCH_DELAY = WatchdogConfig.DEFAULT_RELAUNCH_DELAY;
+    private static final long MIN_LAUNCH = 200;
+    private static final long MAX_LAUNCH = 1500;
+    private static final long WALL_CLOCK_BASE = 1700000000000L;
+    private static final boolean REPORT = Boolean.getBoolean("androidrelaunch.benchmark");
+
+    private static File dir;
+
+    // How the app dies and how it is watched
+    private static class Scenario {
+        final String name;
+        final boolean adaptive;
+        long killMean = 0;
+        long hangMean = 0;
+        long hangLength = 0;
+        long crashAfterLaunch = -1;
+        boolean destroyService = false;
+
+        Scenario(String name, boolean adaptive) {
+            this.name = name;
+            this.adaptive = adaptive;
+        }
+
+        HeartbeatPolicy createPolicy() {
+            return adaptive
+                    ? new AdaptiveHeartbeatPolicy(30000, 5000, 300000, 2.0, 60000)
+                    : new FixedHeartbeatPolicy(30000);
+        }
+
+        long maxInterval() {
+            return adaptive ? 300000 : 30000;
+        }
+    }
+
+    // Latencies of one kind, kept whole for exact percentiles
+    private static class Samples {
+        private long[] values = new long[1024];
+        private int count;
+
+        void add(long value) {
+            if (count == values.length) values = Arrays.copyOf(values, count * 2);
+            values[count++] = value;
+        }
+
+        long percentile(double quantile) {
+            if (count == 0) return 0;
+            long[] sorted = Arrays.copyOf(values, count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.min(count - 1, Math.ceil(quantile * count) - 1)];
+        }
+
+        long max() {
+            return percentile(1.0);
+        }
+    }
+
+    // Outcome of all runs of a scenario
+    private static class Report {
+        // Kill to the first relaunch attempt, throttled or not
+        final Samples detection = new Samples();
+        // Kill to the relaunched process running
+        final Samples relaunch = new Samples();
+        long kills;
+        long hangs;
+        long relaunches;
+        long coalesced;
+        long duplicates;
+        long throttled;
+        long missed;
+        long maxRelaunchesPerRun;
+    }
+
+    // One run: the scripted app process and the host around the monitor
+    private static class Run implements HeartbeatMonitor.Host {
+        final Scenario scenario;
+        final Report report;
+        final Random random;
+        final VirtualScheduler scheduler = new VirtualScheduler();
+        final FakeProcessBackend backend = new FakeProcessBackend(8, 0, true, false);
+        final ProcessProbe probe = new ProcessProbe(backend, PACKAGE, PACKAGE, CACHE_TTL, scheduler);
+        final CrashLoopGuard guard;
+        final RelaunchCoordinator coordinator = new RelaunchCoordinator(scheduler);
+        final HeartbeatMonitor monitor = new HeartbeatMonitor(scheduler, scheduler, this);
+
+        int pid = 1000;
+        boolean alive = true;
+        boolean launching = false;
+        long hungUntil = 0;
+        // Last beat of the main thread into the heartbeat slot
+        long lastBeatAt = 0;
+        // Kill not answered by a relaunch yet, -1 when none
+        long killAt = -1;
+        boolean killDetected = false;
+        long relaunches = 0;
+
+        Run(Scenario scenario, Report report, long seed) throws IOException {
+            this.scenario = scenario;
+            this.report = report;
+            this.random = new Random(seed);
+            File guardFile = new File(dir, "guard.bin");
+            Files.deleteIfExists(guardFile.toPath());
+            this.guard = new CrashLoopGuard(guardFile);
+            scheduler.attach(monitor);
+            backend.start(PACKAGE, pid);
+        }
+
+        void run() {
+            monitor.start(scenario.createPolicy());
+            if (scenario.killMean > 0) scheduleKill();
+            if (scenario.hangMean > 0) scheduleHang();
+            if (scenario.destroyService) {
+                // The service goes away around a kill, before or after the heartbeat saw it
+                long killDelay = (long) (random.nextDouble() * (DURATION - QUIET_TAIL));
+                scheduler.postDelayed(this::kill, killDelay);
+                scheduler.postDelayed(() -> monitor.onDestroyed(RELAUNCH_DELAY, () -> { }),
+                        killDelay + (long) (random.nextDouble() * 40000));
+            }
+            scheduler.runUntil(DURATION);
+
+            if (killAt >= 0) report.missed++;
+            report.maxRelaunchesPerRun = Math.max(report.maxRelaunchesPerRun, relaunches);
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        // Through the gates of Relauncher.relaunch, the launch itself is scripted
+        @Override
+        public boolean relaunch(byte path, long latencyMs, long detectedAt) {
+            long now = scheduler.nowMillis();
+            if (killAt >= 0 && !killDetected) {
+                killDetected = true;
+                report.detection.add(now - killAt);
+            }
+            int begin;
+            try {
+                begin = coordinator.tryBegin(guard, WALL_CLOCK_BASE + now);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            if (begin == RelaunchCoordinator.COALESCED) {
+                report.coalesced++;
+                return false;
+            }
+            if (begin == RelaunchCoordinator.THROTTLED) {
+                report.throttled++;
+                return false;
+            }
+
+            if (alive || launching) {
+                report.duplicates++;
+            }
+            report.relaunches++;
+            relaunches++;
+            launching = true;
+            coordinator.launched();
+            probe.invalidate();
+            long launchLatency = MIN_LAUNCH + (long) (random.nextDouble() * (MAX_LAUNCH - MIN_LAUNCH));
+            scheduler.postDelayed(this::launched, launchLatency);
+            return true;
+        }
+
+        // The main thread beats the slot unless the app is dead or hung
+        @Override
+        public boolean isSlotFresh() {
+            long now = scheduler.nowMillis();
+            if (alive && now >= hungUntil) {
+                lastBeatAt = now;
+            }
+            return now - lastBeatAt < SLOT_STALE;
+        }
+
+        @Override
+        public boolean isProcessAlive() {
+            return AppProcessChecker.isAlive(probe);
+        }
+
+        @Override
+        public void onChecked() {
+        }
+
+        private void launched() {
+            long now = scheduler.nowMillis();
+            launching = false;
+            // The plugin loading in the app confirms the launch
+            coordinator.confirm();
+            if (alive) return;
+            pid++;
+            backend.start(PACKAGE, pid);
+            alive = true;
+            lastBeatAt = now;
+            hungUntil = 0;
+            if (killAt >= 0) {
+                report.relaunch.add(now - killAt);
+                killAt = -1;
+            }
+            if (scenario.crashAfterLaunch >= 0) {
+                scheduler.postDelayed(this::kill, scenario.crashAfterLaunch);
+            }
+        }
+
+        private void kill() {
+            if (!alive) return;
+            long now = scheduler.nowMillis();
+            alive = false;
+            backend.kill(pid);
+            if (now >= hungUntil) lastBeatAt = now;
+            killAt = now;
+            killDetected = false;
+            report.kills++;
+        }
+
+        private void scheduleKill() {
+            long delay = exponential(scenario.killMean);
+            if (scheduler.nowMillis() + delay > DURATION - QUIET_TAIL) return;
+            scheduler.postDelayed(() -> {
+                kill();
+                scheduleKill();
+            }, delay);
+        }
+
+        private void scheduleHang() {
+            long delay = exponential(scenario.hangMean);
+            if (scheduler.nowMillis() + delay > DURATION - QUIET_TAIL) return;
+            scheduler.postDelayed(() -> {
+                long now = scheduler.nowMillis();
+                if (alive && now >= hungUntil) {
+                    lastBeatAt = now;
+                    hungUntil = now + scenario.hangLength;
+                    report.hangs++;
+                }
+                scheduleHang();
+            }, delay);
+        }
+
+        private long exponential(long mean) {
+            return (long) (-Math.log(1 - random.nextDouble()) * mean);
+        }
+    }
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        dir = Files.createTempDirectory("relaunch-simulation").toFile();
+        if (!REPORT) return;
+        System.out.println(String.format("%-18s %7s %6s %10s %9s %6s %9s %6s %11s %11s %11s %11s",
+                "scenario", "kills", "hangs", "relaunches", "coalesced", "dups", "throttled", "missed",
+                "detect p50", "detect max", "launch p50", "launch max"));
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        new File(dir, "guard.bin").delete();
+        dir.delete();
+    }
+
+    @Test
+    public void fixedHeartbeatAnswersEveryKillOnce() throws IOException {
+        Scenario scenario = new Scenario("kills/fixed", false);
+        scenario.killMean = 600000;
+        Report report = simulate(scenario);
+
+        assertTrue(report.kills > RUNS);
+        assertEquals(0, report.missed);
+        assertEquals(0, report.duplicates);
+        assertEquals(report.kills, report.relaunches);
+        // A kill right after a check waits one interval plus the slot going stale
+        assertTrue(report.detection.max() <= 30000 + SLOT_STALE);
+    }
+
+    @Test
+    public void adaptiveHeartbeatAnswersEveryKillOnce() throws IOException {
+        Scenario scenario = new Scenario("kills/adaptive", true);
+        scenario.killMean = 600000;
+        Report report = simulate(scenario);
+
+        assertEquals(0, report.missed);
+        assertEquals(0, report.duplicates);
+        assertTrue(report.detection.max() <= scenario.maxInterval() + SLOT_STALE);
+    }
+
+    @Test
+    public void hungAppIsNotRelaunchedByHeartbeat() throws IOException {
+        // A blocked main thread leaves the process alive, only the in-app looper watchdog sees it
+        Scenario scenario = new Scenario("hangs/fixed", false);
+        scenario.hangMean = 300000;
+        scenario.hangLength = 20000;
+        Report report = simulate(scenario);
+
+        assertTrue(report.hangs > RUNS);
+        assertEquals(0, report.relaunches);
+        assertEquals(0, report.duplicates);
+    }
+
+    @Test
+    public void crashLoopIsThrottled() throws IOException {
+        Scenario scenario = new Scenario("crashloop/adaptive", true);
+        scenario.killMean = 600000;
+        scenario.crashAfterLaunch = 2000;
+        Report report = simulate(scenario);
+
+        assertTrue(report.throttled > 0);
+        assertEquals(0, report.duplicates);
+        // Burst plus one token per refill interval at most
+        assertTrue(report.maxRelaunchesPerRun <= CrashLoopGuard.BURST + DURATION / CrashLoopGuard.REFILL_INTERVAL);
+    }
+
+    @Test
+    public void serviceDestroyedRelaunchesOnceWithHeartbeat() throws IOException {
+        Scenario scenario = new Scenario("destroyed/fixed", false);
+        scenario.destroyService = true;
+        Report report = simulate(scenario);
+
+        assertEquals(RUNS, report.kills);
+        assertEquals(0, report.missed);
+        assertEquals(0, report.duplicates);
+        assertEquals(report.kills, report.relaunches);
+    }
+
+    @Test
+    public void concurrentTriggersLaunchOnce() throws Exception {
+        final RelaunchCoordinator coordinator = new RelaunchCoordinator(Clock.NANO_TIME);
+        final AtomicInteger owners = new AtomicInteger();
+        for (int round = 0; round < 200; round++) {
+            final CountDownLatch start = new CountDownLatch(1);
+            Thread[] threads = new Thread[4];
+            for (int i = 0; i < threads.length; i++) {
+                threads[i] = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    if (coordinator.tryBegin()) {
+                        owners.incrementAndGet();
+                        coordinator.launched();
+                    }
+                });
+                threads[i].start();
+            }
+            start.countDown();
+            for (Thread thread : threads) thread.join();
+
+            assertEquals(round + 1, owners.get());
+            assertEquals(RelaunchCoordinator.LAUNCHING, coordinator.getState());
+            coordinator.confirm();
+            assertEquals(RelaunchCoordinator.CONFIRMED, coordinator.getState());
+        }
+    }
+
+    private static Report simulate(Scenario scenario) throws IOException {
+        Report report = new Report();
+        for (int i = 0; i < RUNS; i++) {
+            new Run(scenario, report, scenario.name.hashCode() * 31L + i).run();
+        }
+        if (!REPORT) return report;
+        System.out.println(String.format("%-18s %7d %6d %10d %9d %6d %9d %6d %9dms %9dms %9dms %9dms",
+                scenario.name, report.kills, report.hangs, report.relaunches, report.coalesced, report.duplicates, report.throttled,
+                report.missed, report.detection.percentile(0.5), report.detection.max(),
+                report.relaunch.percentile(0.5), report.relaunch.max()));
+        return report;
+    }
+}
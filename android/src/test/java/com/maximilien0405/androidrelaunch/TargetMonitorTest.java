@@ -0,0 +1,94 @@
+package com.maximilien0405.androidrelaunch;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Checks of {@link TargetMonitor} against {@link FakeProcessBackend}: one process list
+ * snapshot per check, dead targets reported with their downtime, and every target due at
+ * its own interval.
+ */
+public class TargetMonitorTest {
+
+    private static final String PACKAGE = "com.example.app";
+
+    private final FakeProcessBackend backend = new FakeProcessBackend(64, 0, false, false);
+    private final List<String> died = new ArrayList<>();
+    private final List<Long> downtimes = new ArrayList<>();
+
+    private final TargetMonitor.Listener listener = (index, target, downMs) -> {
+        died.add(target.processName);
+        downtimes.add(downMs);
+    };
+
+    private static MonitorTarget target(String processName, long interval) {
+        return new MonitorTarget(processName, PACKAGE, null, MonitorTarget.LAUNCH_ACTIVITY,
+                FixedHeartbeatPolicy.NAME, interval, interval, interval, 1.0, 0);
+    }
+
+    @Test
+    public void targetCheckTakesOneSnapshotForAllTargets() {
+        List<MonitorTarget> targets = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            backend.start(PACKAGE + ":worker" + i, 5000 + i);
+            targets.add(target(PACKAGE + ":worker" + i, 1000));
+        }
+        backend.kill(5003);
+        backend.kill(5006);
+
+        TargetMonitor monitor = new TargetMonitor(backend, targets, 0);
+        long delay = monitor.check(1000, listener);
+
+        assertEquals(1, backend.binderCalls);
+        assertEquals(Arrays.asList(PACKAGE + ":worker3", PACKAGE + ":worker6"), died);
+        assertEquals(1000, delay);
+    }
+
+    @Test
+    public void deadTargetTriggersOnTargetDied() {
+        backend.start(PACKAGE + ":sync", 5000);
+        backend.start(PACKAGE + ":media", 5001);
+        TargetMonitor monitor = new TargetMonitor(backend,
+                Arrays.asList(target(PACKAGE + ":sync", 1000), target(PACKAGE + ":media", 1000)), 0);
+
+        monitor.check(1000, listener);
+        assertEquals(0, died.size());
+
+        backend.kill(5001);
+        monitor.check(2000, listener);
+        monitor.check(3000, listener);
+
+        // Reported at every check while it stays down, with the time since it was last seen alive
+        assertEquals(Arrays.asList(PACKAGE + ":media", PACKAGE + ":media"), died);
+        assertEquals(Arrays.asList(1000L, 2000L), downtimes);
+    }
+
+    @Test
+    public void targetsAreCheckedAtTheirOwnIntervals() {
+        backend.start(PACKAGE + ":fast", 5000);
+        backend.start(PACKAGE + ":slow", 5001);
+        TargetMonitor monitor = new TargetMonitor(backend,
+                Arrays.asList(target(PACKAGE + ":fast", 1000), target(PACKAGE + ":slow", 3000)), 0);
+
+        // Nothing is due yet, no snapshot is taken
+        assertEquals(500, monitor.check(500, listener));
+        assertEquals(0, backend.binderCalls);
+
+        backend.kill(5001);
+        assertEquals(1000, monitor.check(1000, listener));
+        assertEquals(1000, monitor.check(2000, listener));
+        assertEquals(2, backend.binderCalls);
+        // The slow target is dead since 1000 but not due before 3000
+        assertEquals(0, died.size());
+
+        assertEquals(1000, monitor.check(3000, listener));
+        assertEquals(3, backend.binderCalls);
+        assertEquals(Arrays.asList(PACKAGE + ":slow"), died);
+        assertEquals(Arrays.asList(3000L), downtimes);
+    }
+}
@@ -0,0 +1,85 @@
+package com.maximilien0405.androidrelaunch;
+
+import java.util.PriorityQueue;
+
+// Virtual clock and single-threaded event queue standing in for SystemClock, the monitor
+// thread Handler and AlarmManager. Time only moves when the queue runs, so hours of
+// monitoring replay in microseconds and every run is reproducible.
+class VirtualScheduler implements Clock, HeartbeatMonitor.Scheduler {
+
+    private static class Task implements Comparable<Task> {
+        final long at;
+        final long sequence;
+        final Runnable runnable;
+        boolean cancelled;
+
+        Task(long at, long sequence, Runnable runnable) {
+            this.at = at;
+            this.sequence = sequence;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            return at != other.at ? Long.compare(at, other.at) : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final PriorityQueue<Task> queue = new PriorityQueue<>();
+    private long now;
+    private long sequence;
+    private Task pendingCheck;
+    private HeartbeatMonitor monitor;
+
+    // Monitor whose check() runs for scheduleCheck
+    void attach(HeartbeatMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    long nowMillis() {
+        return now;
+    }
+
+    @Override
+    public long nanos() {
+        return now * 1000000L;
+    }
+
+    @Override
+    public void scheduleCheck(long delayMs) {
+        cancelCheck();
+        pendingCheck = post(() -> monitor.check(), delayMs);
+    }
+
+    @Override
+    public void cancelCheck() {
+        if (pendingCheck != null) {
+            pendingCheck.cancelled = true;
+            pendingCheck = null;
+        }
+    }
+
+    @Override
+    public void postDelayed(Runnable task, long delayMs) {
+        post(task, delayMs);
+    }
+
+    Task post(Runnable runnable, long delayMs) {
+        Task task = new Task(now + Math.max(delayMs, 0), sequence++, runnable);
+        queue.add(task);
+        return task;
+    }
+
+    // Run every task due up to the given time, then leave the clock there
+    void runUntil(long until) {
+        Task task;
+        while ((task = queue.peek()) != null && task.at <= until) {
+            queue.poll();
+            if (task.cancelled) continue;
+            if (task == pendingCheck) pendingCheck = null;
+            now = task.at;
+            task.runnable.run();
+        }
+        now = until;
+    }
+}
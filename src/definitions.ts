@@ -1,13 +1,761 @@
 import { PluginListenerHandle } from "@capacitor/core";
 
-export type RelaunchListener = (relaunch: boolean) => void;
+/**
+ * `ApplicationExitInfo` reason of a process exit, `unknown` when not known or before Android 11.
+ */
+export type ExitReason =
+  | 'unknown'
+  | 'exitSelf'
+  | 'signaled'
+  | 'lowMemory'
+  | 'crash'
+  | 'crashNative'
+  | 'anr'
+  | 'initializationFailure'
+  | 'permissionChange'
+  | 'excessiveResourceUsage'
+  | 'userRequested'
+  | 'userStopped'
+  | 'dependencyDied'
+  | 'other'
+  | 'freezer'
+  | 'packageStateChange'
+  | 'packageUpdated';
+
+export interface RelaunchEvent {
+  /**
+   * Journal sequence of the event, acked with `ackEvent()` once a listener ran.
+   */
+  sequence: number;
+
+  /**
+   * Always `true`.
+   */
+  relaunch: boolean;
+
+  /**
+   * Epoch milliseconds at which the app was relaunched.
+   */
+  timestamp: number;
+
+  /**
+   * How the death was detected: heartbeat check, service destruction or Binder death
+   * notification of the `watchdog` mode.
+   */
+  path: 'heartbeat' | 'serviceDestroyed' | 'binderDeath' | 'target' | 'hang' | 'job' | 'jsProbe' | 'unknown';
+
+  /**
+   * Milliseconds between the last sign of life of the app and its relaunch.
+   */
+  latencyMs: number;
+
+  /**
+   * Why the previous process exited, from the system exit history on Android 11 and above.
+   */
+  exitReason: ExitReason;
+
+  /**
+   * Process name of the monitored target that was relaunched, absent for the app itself.
+   */
+  target?: string;
+
+  /**
+   * Whether state saved with `saveState()` is available to `restoreState()`.
+   */
+  hasState: boolean;
+}
+
+export type RelaunchListener = (event: RelaunchEvent) => void;
+
+export interface HangEvent {
+  /**
+   * Journal sequence of the event, acked with `ackEvent()` once a listener ran.
+   */
+  sequence: number;
+
+  /**
+   * Epoch milliseconds at which the hang was detected.
+   */
+  timestamp: number;
+
+  /**
+   * How long the main thread had been blocked when the hang was detected.
+   */
+  blockedMs: number;
+
+  /**
+   * Main thread stack captured at detection time.
+   */
+  stack: string | null;
+}
+
+export type HangListener = (event: HangEvent) => void;
+
+export interface RendererRecoveredEvent {
+  /**
+   * Epoch milliseconds at which the recovered WebView finished loading.
+   */
+  timestamp: number;
+
+  /**
+   * Milliseconds from the renderer dying to the new WebView finishing its load.
+   */
+  recoveryMs: number;
+
+  /**
+   * Whether the renderer crashed, as opposed to being killed by the system (Android 8+).
+   */
+  didCrash: boolean;
+}
+
+export type RendererRecoveredListener = (event: RendererRecoveredEvent) => void;
+
+export interface ProbeEvent {
+  /**
+   * Id to pass back to `ackProbe()`.
+   */
+  id: number;
+}
+
+export type ProbeListener = (event: ProbeEvent) => void;
+
+export interface EventAck {
+  /**
+   * `sequence` of the acked `relaunch` or `hang` event.
+   */
+  sequence: number;
+}
+
+export interface JsUnresponsiveEvent {
+  /**
+   * Epoch milliseconds at which the page was found unresponsive.
+   */
+  timestamp: number;
+
+  /**
+   * Milliseconds since the oldest probe that was not acked.
+   */
+  blockedMs: number;
+
+  /**
+   * Recovery applied, see `ProbeOptions.action`.
+   */
+  action: 'reload' | 'none';
+}
+
+export type JsUnresponsiveListener = (event: JsUnresponsiveEvent) => void;
+
+export interface ProbeOptions {
+  /**
+   * Delay between probes. At most one probe is in flight at a time.
+   *
+   * @default 5000
+   */
+  intervalMs?: number;
+
+  /**
+   * How long a probe may wait for its ack before the page counts as unresponsive.
+   *
+   * @default 10000
+   */
+  timeoutMs?: number;
+
+  /**
+   * Recovery once a probe times out: reload the WebView, kill and relaunch the app, or only
+   * emit `jsUnresponsive`. Applied once per outage.
+   *
+   * @default 'reload'
+   */
+  action?: 'reload' | 'relaunch' | 'none';
+}
+
+export type MemoryPressureLevel = 'normal' | 'moderate' | 'high' | 'critical';
+
+export interface MemoryPressureEvent {
+  timestamp: number;
+
+  /**
+   * How close the app is to a low-memory kill. Drop caches from `moderate` on and tear down
+   * heavy views at `high` and `critical`.
+   */
+  level: MemoryPressureLevel;
+
+  previousLevel: MemoryPressureLevel;
+
+  /**
+   * What changed the level: a trim callback, the low-memory callback or a periodic memory sample.
+   */
+  source: 'trim' | 'lowMemory' | 'memoryInfo';
+
+  /**
+   * Last `onTrimMemory` level received from the system, 0 when none.
+   */
+  trimLevel: number;
+
+  /**
+   * Available system memory at the last sample, in KB.
+   */
+  availMemKb: number;
+
+  /**
+   * Available memory under which the system starts killing processes, in KB.
+   */
+  thresholdKb: number;
+
+  /**
+   * Whether the system considered itself low on memory at the last sample.
+   */
+  lowMemory: boolean;
+}
+
+export type MemoryPressureListener = (event: MemoryPressureEvent) => void;
+
+/**
+ * How the app process is watched.
+ * - `foreground`: heartbeat polling from a foreground service in the app process.
+ * - `watchdog`: foreground service in a separate `:watchdog` process, notified
+ *   through Binder death as soon as the app process dies.
+ * - `job`: no service, one-shot `JobScheduler` jobs in a short-lived `:job` process
+ *   check the app every `heartbeat.intervalMs`. Jobs are deferred in Doze.
+ */
+export type RelaunchMode = 'foreground' | 'watchdog' | 'job';
+
+export interface HeartbeatOptions {
+  /**
+   * `fixed` always waits `intervalMs`. `adaptive` drops to `minIntervalMs` after a kill,
+   * stays there while kills are recent and backs off exponentially up to `maxIntervalMs`
+   * while the app stays alive.
+   *
+   * @default 'fixed'
+   */
+  policy?: 'fixed' | 'adaptive';
+
+  /**
+   * Interval between checks for the `fixed` policy, initial interval for `adaptive`.
+   *
+   * @default 30000
+   */
+  intervalMs?: number;
+
+  /**
+   * Shortest interval used by the `adaptive` policy.
+   *
+   * @default 5000
+   */
+  minIntervalMs?: number;
+
+  /**
+   * Longest interval used by the `adaptive` policy.
+   *
+   * @default 300000
+   */
+  maxIntervalMs?: number;
+
+  /**
+   * Factor applied to the interval after each healthy check with the `adaptive` policy.
+   *
+   * @default 2
+   */
+  backoffFactor?: number;
+
+  /**
+   * How long a kill is considered recent by the `adaptive` policy.
+   *
+   * @default 600000
+   */
+  killWindowMs?: number;
+}
+
+export interface MonitorTargetOptions {
+  /**
+   * Process to watch, for example `com.example.app:sync`.
+   */
+  processName: string;
+
+  /**
+   * Package owning the process. Must be the app package: since Android 5.1 the process
+   * list only shows the app's own processes, other packages cannot be watched.
+   *
+   * @default the app package
+   */
+  packageName?: string;
+
+  /**
+   * Component started to bring the process back, as `package/class`.
+   * Defaults to the launcher activity of `packageName`, required when `launchAs` is `service`.
+   */
+  launchComponent?: string;
+
+  /**
+   * Whether `launchComponent` is an activity or a service.
+   *
+   * @default 'activity'
+   */
+  launchAs?: 'activity' | 'service';
+
+  /**
+   * Heartbeat of this target, unset fields inherit the top-level `heartbeat` options.
+   */
+  heartbeat?: HeartbeatOptions;
+}
+
+export interface EnableOptions {
+  /**
+   * Monitoring mode.
+   *
+   * @default 'foreground'
+   */
+  mode?: RelaunchMode;
+
+  /**
+   * Heartbeat scheduling used by the `foreground` mode.
+   */
+  heartbeat?: HeartbeatOptions;
+
+  /**
+   * Delay before relaunching the app once the service is destroyed.
+   *
+   * @default 3000
+   */
+  relaunchDelayMs?: number;
+
+  /**
+   * How long the app main thread may go without stamping the shared heartbeat slot
+   * before it is considered stuck. In `watchdog` and `foreground` modes a stuck process is
+   * killed and relaunched, `foreground` mode notices it at its next heartbeat check.
+   * `0` disables stall detection.
+   *
+   * @default 30000
+   */
+  stallTimeoutMs?: number;
+
+  /**
+   * Activity to start on relaunch, as `package/class` (for example
+   * `com.example.app/.MainActivity`). Defaults to the launcher activity of the app.
+   * The launch target is resolved once when monitoring starts.
+   */
+  launchComponent?: string;
+
+  /**
+   * Restore monitoring after a device reboot when it was enabled before shutdown.
+   * The service is started directly, without opening the app.
+   *
+   * @default true
+   */
+  startOnBoot?: boolean;
+
+  /**
+   * Delay before monitoring is restored after boot, so it stays out of the boot storm.
+   * On Android 12 and later the monitoring service must start while the boot broadcast is
+   * handled, it starts right away and waits this long before its first check.
+   *
+   * @default 10000
+   */
+  bootDelayMs?: number;
+
+  /**
+   * Upper bound of a random delay added to `bootDelayMs`, so devices do not all start at once.
+   *
+   * @default 10000
+   */
+  bootJitterMs?: number;
+
+  /**
+   * Additional processes to watch and relaunch next to the app. All due targets are
+   * checked with a single process list query. In `job` mode every run checks all targets at the
+   * heartbeat interval.
+   */
+  targets?: MonitorTargetOptions[];
+
+  /**
+   * How long the app main thread may be blocked before a `hang` event with its stack is
+   * recorded. `0` disables hang detection.
+   *
+   * @default 5000
+   */
+  hangTimeoutMs?: number;
+
+  /**
+   * What to do once a hang is detected: only report it, or kill the app and relaunch it.
+   *
+   * @default 'report'
+   */
+  hangAction?: 'report' | 'relaunch';
+
+  /**
+   * How the foreground mode schedules its checks. `handler` uses an in-process timer, which stalls
+   * while the device is in Doze. `alarm` uses exact idle alarms and holds a partial wake lock only
+   * while a check or relaunch runs, so kills are still detected on idle devices. Exact alarms need the
+   * `SCHEDULE_EXACT_ALARM` permission, which the app declares itself; without it inexact idle alarms
+   * are used.
+   *
+   * @default 'handler'
+   */
+  scheduling?: 'handler' | 'alarm';
+
+  /**
+   * Probe the JavaScript event loop over the bridge while the app is in the foreground, to
+   * recover from freezes the main thread hang detection cannot see. Off unless given.
+   * Probes are acked automatically by this package.
+   */
+  probe?: ProbeOptions;
+}
+
+export interface SaveStateOptions {
+  /**
+   * Key to set.
+   */
+  key: string;
+
+  /**
+   * Value to store, typically `JSON.stringify(...)` output. `null` removes the key.
+   */
+  value: string | null;
+
+  /**
+   * Write the snapshot to disk before resolving instead of after a short debounce.
+   *
+   * @default false
+   */
+  commit?: boolean;
+}
+
+export interface RestoreStateResult {
+  /**
+   * Saved keys and values.
+   */
+  state: { [key: string]: string };
+
+  /**
+   * Epoch milliseconds of the last commit to disk, `0` when nothing was ever saved.
+   */
+  savedAt: number;
+}
+
+export interface HeartbeatIntervalResult {
+  /**
+   * Whether a heartbeat is currently scheduled in the app process.
+   */
+  running: boolean;
+
+  /**
+   * Name of the active heartbeat policy.
+   */
+  policy?: 'fixed' | 'adaptive';
+
+  /**
+   * Delay in milliseconds before the next check.
+   */
+  intervalMs?: number;
+}
+
+export interface RelaunchStatus {
+  /**
+   * Whether relaunches are currently paused because of a crash loop or an exhausted budget.
+   */
+  coolingDown: boolean;
+
+  /**
+   * Epoch milliseconds at which the current cool-down ends, `0` if there was none.
+   */
+  cooldownUntil: number;
+
+  /**
+   * Milliseconds left in the current cool-down.
+   */
+  cooldownRemainingMs: number;
+
+  /**
+   * Number of consecutive cool-downs, each one doubles the next cool-down.
+   */
+  backoffLevel: number;
+
+  /**
+   * Relaunches currently available in the budget.
+   */
+  tokens: number;
+
+  /**
+   * Epoch milliseconds of the most recent relaunches, oldest first.
+   */
+  recentRelaunches: number[];
+
+  /**
+   * State of the relaunch in this process: `launching` until the relaunched app comes up.
+   */
+  relaunchState: RelaunchState;
+}
+
+export type RelaunchState = 'idle' | 'detected' | 'launching' | 'confirmed' | 'failed';
+
+export interface LatencyStats {
+  /**
+   * Number of recorded samples.
+   */
+  count: number;
+
+  meanUs: number;
+  maxUs: number;
+
+  /**
+   * Percentiles, rounded up to the power-of-two bucket they fall in.
+   */
+  p50Us: number;
+  p90Us: number;
+  p99Us: number;
+
+  /**
+   * Sample counts per bucket, bucket `i` holds values below `2^i` microseconds.
+   */
+  buckets: number[];
+}
+
+export interface ProcessStats {
+  counters: {
+    heartbeats: number;
+    slotChecks: number;
+    skippedChecks: number;
+    relaunches: number;
+    failedRelaunches: number;
+    throttledRelaunches: number;
+    binderDeaths: number;
+    stallKills: number;
+    targetSnapshots: number;
+    targetRelaunches: number;
+    hangs: number;
+    rendererGone: number;
+    rendererRecoveries: number;
+    delayedChecks: number;
+    pressureModerate: number;
+    pressureHigh: number;
+    pressureCritical: number;
+    coalescedRelaunches: number;
+    confirmedRelaunches: number;
+    lostRelaunches: number;
+    probes: number;
+    probeTimeouts: number;
+    probeRecoveries: number;
+    checksByStrategy: {
+      cache: number;
+      proc: number;
+      exit_reasons: number;
+      running_processes: number;
+      foreground_fallback: number;
+    };
+  };
+
+  /**
+   * Duration of process liveness checks.
+   */
+  checkLatency: LatencyStats;
+
+  /**
+   * Time from detecting the death of the app to `startActivity` returning.
+   */
+  relaunchLatency: LatencyStats;
+
+  /**
+   * Time from handing a `relaunch` event to the bridge to its listener's ack,
+   * the same interval as the `eventDelivery` trace span.
+   */
+  deliveryLatency: LatencyStats;
+
+  /**
+   * How late the app main thread ran its once-per-second heartbeat beat.
+   */
+  looperLag: LatencyStats;
+
+  /**
+   * Time from the WebView renderer dying to the recreated WebView finishing its load.
+   */
+  rendererRecovery: LatencyStats;
+
+  /**
+   * How late heartbeat checks ran compared to when they were scheduled, device sleep included.
+   */
+  checkDelay: LatencyStats;
+
+  /**
+   * How long each check or relaunch kept the CPU awake.
+   */
+  wakeLockHeld: LatencyStats;
+  probeRtt: LatencyStats;
+}
+
+export interface MemoryAtExit {
+  /**
+   * Average over the exits for which the system sampled memory, in KB.
+   */
+  avgKb: number;
+
+  maxKb: number;
+}
+
+export interface ExitReasonStats {
+  count: number;
+
+  /**
+   * Epoch milliseconds of the last exit with this reason.
+   */
+  lastAt: number;
+
+  /**
+   * Proportional set size of the process when it died.
+   */
+  pss: MemoryAtExit;
+
+  /**
+   * Resident set size of the process when it died.
+   */
+  rss: MemoryAtExit;
+
+  /**
+   * Number of exits per process importance at death.
+   */
+  importance: {
+    foreground: number;
+    foregroundService: number;
+    visible: number;
+    perceptible: number;
+    service: number;
+    cached: number;
+  };
+}
+
+/**
+ * Stage of a relaunch recorded in the trace. `bridgeLoad` runs from the start of the relaunched
+ * process to the plugin loaded and is only recorded for a process started by a relaunch.
+ * `eventDelivery` runs from handing the `relaunch` event to the bridge to its listener's ack.
+ */
+export type TraceStage =
+  | 'detection'
+  | 'relaunchDelay'
+  | 'resolveIntent'
+  | 'startActivity'
+  | 'bridgeLoad'
+  | 'eventDelivery';
+
+/**
+ * One complete (`X`) event, or a `process_name` metadata (`M`) event, of the Chrome trace format.
+ */
+export interface TraceEvent {
+  name: TraceStage | 'process_name';
+  ph: 'X' | 'M';
+  cat?: 'relaunch';
+
+  /**
+   * Start and duration in microseconds of `SystemClock.elapsedRealtime`.
+   */
+  ts?: number;
+  dur?: number;
+
+  pid: number;
+  tid?: number;
+
+  /**
+   * `incident` is the detection time in nanoseconds shared by the spans of one relaunch.
+   */
+  args?: { incident?: number; name?: string };
+}
+
+export interface TraceResult {
+  traceEvents: TraceEvent[];
+  displayTimeUnit: 'ms';
+}
+
+export interface ExitReasonsResult {
+  /**
+   * `false` before Android 11, where the system keeps no exit history.
+   */
+  supported: boolean;
+
+  /**
+   * Epoch milliseconds since which exits are counted.
+   */
+  since: number;
+
+  /**
+   * Number of exits of the app process counted.
+   */
+  total: number;
+
+  /**
+   * Aggregate per exit reason, only reasons seen at least once.
+   */
+  reasons: Partial<Record<ExitReason, ExitReasonStats>>;
+}
+
+export interface StatsResult extends ProcessStats {
+  /**
+   * Memory pressure level currently reported to `memoryPressure` listeners.
+   */
+  memoryPressure: MemoryPressureLevel;
+
+  /**
+   * Stats of the `:watchdog` process, as last persisted by it.
+   */
+  watchdog?: ProcessStats;
+
+  /**
+   * Stats of the `:job` process, as persisted after its last run.
+   */
+  job?: ProcessStats;
+
+  /**
+   * Resident memory of each mode that ran on this device, and what it costs over the `job` mode.
+   */
+  footprint: ModeFootprints;
+}
+
+export interface PssSamples {
+  samples: number;
+  avgPssKb: number;
+  maxPssKb: number;
+
+  /**
+   * Epoch milliseconds of the first and the last sample.
+   */
+  firstSampleAt: number;
+  lastSampleAt: number;
+}
+
+export interface ModeFootprint {
+  /**
+   * PSS of the app process, sampled with the plugin loaded while this mode was active.
+   */
+  app?: PssSamples;
+
+  /**
+   * PSS of the mode's own process: `:watchdog` while it runs, `:job` at the end of each run.
+   */
+  process?: PssSamples;
+
+  /**
+   * Measured resident memory this mode costs over the `job` mode: its average app PSS minus the
+   * app PSS in `job` mode, plus the `:watchdog` process for `watchdog`. Missing until both modes
+   * were sampled. App PSS varies with what the page does, compare figures over many samples.
+   */
+  differenceKb?: number;
+}
+
+/**
+ * In `job` mode the app process hosts nothing of the monitoring and no process stays resident
+ * between runs, its app PSS is the baseline of `differenceKb`.
+ */
+export interface ModeFootprints {
+  foreground?: ModeFootprint;
+  watchdog?: ModeFootprint;
+  job?: ModeFootprint;
+}
 
 export interface AndroidRelaunchPlugin {
   /**
    * Enable the relaunch mechanism.
    * Starts the foreground service + auto-relaunch + heartbeat monitor.
+   *
+   * @param options Optional monitoring options.
    */
-  enable(): Promise<void>;
+  enable(options?: EnableOptions): Promise<void>;
 
   /**
    * Disable the relaunch mechanism.
@@ -15,12 +763,128 @@ export interface AndroidRelaunchPlugin {
    */
   disable(): Promise<void>;
 
+  /**
+   * Get the heartbeat interval currently used by the monitoring service.
+   * Useful to measure how often the device is woken up by the adaptive policy.
+   */
+  getHeartbeatInterval(): Promise<HeartbeatIntervalResult>;
+
+  /**
+   * Get the state of the crash-loop guard.
+   * Relaunches are paid from a small budget; when it runs out or the app keeps dying
+   * right after launch, relaunches pause for a cool-down that doubles on each repeat.
+   */
+  getRelaunchStatus(): Promise<RelaunchStatus>;
+
+  /**
+   * Get counters and latency histograms of the monitoring and relaunch paths since the
+   * app process started.
+   */
+  getStats(): Promise<StatsResult>;
+
+  /**
+   * Get why the app process died, counted per exit reason with its memory use and
+   * importance at death. Folded on device from the system exit history (Android 11+).
+   */
+  getExitReasons(): Promise<ExitReasonsResult>;
+
+  /**
+   * Export the most recent relaunch stages of the app, `:watchdog` and `:job` processes
+   * as Chrome trace JSON, to open in ui.perfetto.dev or chrome://tracing.
+   */
+  exportTrace(): Promise<TraceResult>;
+
+  /**
+   * Ack a `probe` event. Called automatically from the JavaScript event loop on Android.
+   */
+  ackProbe(options: ProbeEvent): Promise<void>;
+
+  /**
+   * Ack a `relaunch` or `hang` event. Called automatically on Android once a listener ran;
+   * until then the event stays in the journal and is replayed after a process restart.
+   */
+  ackEvent(options: EventAck): Promise<void>;
+
+  /**
+   * Set one key of the state handed over to the app after a relaunch.
+   * Only the given key is updated; writes are collected in memory and committed
+   * atomically to disk after a short debounce, or when the app goes to the background.
+   *
+   * @param options Key and value to save.
+   */
+  saveState(options: SaveStateOptions): Promise<void>;
+
+  /**
+   * Read the saved state, e.g. when a `relaunch` event reports `hasState`.
+   */
+  restoreState(): Promise<RestoreStateResult>;
+
+  /**
+   * Remove all saved state.
+   */
+  clearState(): Promise<void>;
+
   /**
    * Listen to the "relaunch" event.
    * Triggered when the app was automatically relaunched after being killed.
+   * Relaunches are journaled on disk and replayed once the plugin loads, so events
+   * are not lost when the app process itself was restarted. An event is removed from the
+   * journal once a listener ran, so it may be delivered again if the app died before that.
    * 
    * @param eventName The event name.
-   * @param listenerFunc Callback invoked with the relaunch value.
+   * @param listenerFunc Callback invoked with the relaunch event.
    */
   addListener(eventName: 'relaunch', listenerFunc: RelaunchListener): Promise<PluginListenerHandle>;
+
+  /**
+   * Listen to the "hang" event.
+   * Triggered when the app main thread was blocked for longer than `hangTimeoutMs`.
+   * Like relaunches, hangs are journaled and replayed, so a hang that led to a relaunch
+   * is reported by the relaunched app.
+   *
+   * @param eventName The event name.
+   * @param listenerFunc Callback invoked with the hang event.
+   */
+  addListener(eventName: 'hang', listenerFunc: HangListener): Promise<PluginListenerHandle>;
+
+  /**
+   * Listen to the "rendererRecovered" event.
+   * Triggered when the WebView renderer process died and the WebView was recreated in the
+   * running app, without a full relaunch. The event is retained until a listener is added,
+   * so the reloaded page receives it when it subscribes.
+   *
+   * @param eventName The event name.
+   * @param listenerFunc Callback invoked with the recovery event.
+   */
+  addListener(eventName: 'rendererRecovered', listenerFunc: RendererRecoveredListener): Promise<PluginListenerHandle>;
+
+  /**
+   * Listen to the "memoryPressure" event.
+   * Triggered when the memory pressure level changes, from system trim callbacks and memory
+   * samples taken every 10 seconds, so the app can shed load before it is killed. Only
+   * emitted while monitoring is enabled.
+   *
+   * @param eventName The event name.
+   * @param listenerFunc Callback invoked with the new level.
+   */
+  addListener(eventName: 'memoryPressure', listenerFunc: MemoryPressureListener): Promise<PluginListenerHandle>;
+
+  /**
+   * Listen to the "probe" event, sent every `probe.intervalMs`.
+   * This package already acks probes; listen only to observe them.
+   *
+   * @param eventName The event name.
+   * @param listenerFunc Callback invoked with the probe.
+   */
+  addListener(eventName: 'probe', listenerFunc: ProbeListener): Promise<PluginListenerHandle>;
+
+  /**
+   * Listen to the "jsUnresponsive" event.
+   * Triggered when a probe was not acked within `probe.timeoutMs`, delivered once the page
+   * runs again. With the `relaunch` action a `relaunch` event with path `jsProbe` is sent instead.
+   *
+   * @param eventName The event name.
+   * @param listenerFunc Callback invoked with the outage.
+   */
+  addListener(eventName: 'jsUnresponsive', listenerFunc: JsUnresponsiveListener): Promise<PluginListenerHandle>;
 }
\ No newline at end of file
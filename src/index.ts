@@ -1,10 +1,42 @@
-import { registerPlugin } from '@capacitor/core';
+import { Capacitor, registerPlugin } from '@capacitor/core';
 
 import type { AndroidRelaunchPlugin } from './definitions';
 
-const AndroidRelaunch = registerPlugin<AndroidRelaunchPlugin>('AndroidRelaunch', {
+const plugin = registerPlugin<AndroidRelaunchPlugin>('AndroidRelaunch', {
   web: () => import('./web').then((m) => new m.AndroidRelaunchWeb()),
 });
 
+// Events the native journal keeps until a listener of the page ran
+const JOURNALED_EVENTS = ['relaunch', 'hang'];
+
+// Ack journaled events once the app's listener ran, so an event handed to a page that died
+// before running its listener is replayed by the relaunched app
+const AndroidRelaunch = new Proxy(plugin, {
+  get(target, prop, receiver) {
+    if (prop !== 'addListener' || Capacitor.getPlatform() !== 'android') {
+      return Reflect.get(target, prop, receiver);
+    }
+    return (eventName: string, listenerFunc: (event: any) => void) => {
+      if (!JOURNALED_EVENTS.includes(eventName)) {
+        return (target as any).addListener(eventName, listenerFunc);
+      }
+      return (target as any).addListener(eventName, (event: any) => {
+        try {
+          listenerFunc(event);
+        } finally {
+          void target.ackEvent({ sequence: event.sequence });
+        }
+      });
+    };
+  },
+});
+
+// Ack responsiveness probes from the JavaScript event loop, so a frozen page stops acking
+if (Capacitor.getPlatform() === 'android') {
+  void plugin.addListener('probe', ({ id }) => {
+    void plugin.ackProbe({ id });
+  });
+}
+
 export * from './definitions';
 export { AndroidRelaunch };
@@ -1,8 +1,20 @@
 import { PluginListenerHandle, WebPlugin } from '@capacitor/core';
-import type { AndroidRelaunchPlugin, RelaunchListener } from './definitions';
+import type {
+  AndroidRelaunchPlugin,
+  EnableOptions,
+  EventAck,
+  ExitReasonsResult,
+  HeartbeatIntervalResult,
+  ProbeEvent,
+  RelaunchStatus,
+  RestoreStateResult,
+  SaveStateOptions,
+  StatsResult,
+  TraceResult,
+} from './definitions';
 
 export class AndroidRelaunchWeb extends WebPlugin implements AndroidRelaunchPlugin {
-  async enable(): Promise<void> {
+  async enable(_options?: EnableOptions): Promise<void> {
     throw new Error('enable is not supported on the web.');
   }
 
@@ -10,7 +22,47 @@ export class AndroidRelaunchWeb extends WebPlugin implements AndroidRelaunchPlug
     throw new Error('disable is not supported on the web.');
   }
 
-  async addListener(eventName: 'relaunch', _listenerFunc: RelaunchListener): Promise<PluginListenerHandle> {
+  async getHeartbeatInterval(): Promise<HeartbeatIntervalResult> {
+    throw new Error('getHeartbeatInterval is not supported on the web.');
+  }
+
+  async getRelaunchStatus(): Promise<RelaunchStatus> {
+    throw new Error('getRelaunchStatus is not supported on the web.');
+  }
+
+  async getStats(): Promise<StatsResult> {
+    throw new Error('getStats is not supported on the web.');
+  }
+
+  async getExitReasons(): Promise<ExitReasonsResult> {
+    throw new Error('getExitReasons is not supported on the web.');
+  }
+
+  async exportTrace(): Promise<TraceResult> {
+    throw new Error('exportTrace is not supported on the web.');
+  }
+
+  async ackProbe(_options: ProbeEvent): Promise<void> {
+    throw new Error('ackProbe is not supported on the web.');
+  }
+
+  async ackEvent(_options: EventAck): Promise<void> {
+    throw new Error('ackEvent is not supported on the web.');
+  }
+
+  async saveState(_options: SaveStateOptions): Promise<void> {
+    throw new Error('saveState is not supported on the web.');
+  }
+
+  async restoreState(): Promise<RestoreStateResult> {
+    throw new Error('restoreState is not supported on the web.');
+  }
+
+  async clearState(): Promise<void> {
+    throw new Error('clearState is not supported on the web.');
+  }
+
+  async addListener(eventName: string, _listenerFunc: (event: any) => void): Promise<PluginListenerHandle> {
     return Promise.reject(new Error(eventName + 'listener is not supported on the web.'));
   }
 }
\ No newline at end of file